@@ -1,33 +1,48 @@
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.UUID;
 
 public class ActivityLog implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private String logId;
     private String action;
     private String details;
     private LocalDateTime timestamp;
+    // Details given as a format and its arguments are only formatted when read
+    private String detailsFormat;
+    private Object[] detailsArgs;
 
     public ActivityLog(String action, String details) {
-        this.logId = UUID.randomUUID().toString().substring(0, 8);
+        this.logId = IdGenerator.getDefault().nextIdString();
         this.action = action;
         this.details = details;
         this.timestamp = LocalDateTime.now();
     }
 
+    public ActivityLog(String action, String detailsFormat, Object... detailsArgs) {
+        this(action, null);
+        this.detailsFormat = detailsFormat;
+        this.detailsArgs = detailsArgs;
+    }
+
     // Getters
     public String getLogId() { return logId; }
     public String getAction() { return action; }
-    public String getDetails() { return details; }
     public LocalDateTime getTimestamp() { return timestamp; }
 
+    public String getDetails() {
+        if (detailsFormat == null) {
+            return details;
+        }
+        return String.format(detailsFormat, detailsArgs);
+    }
+
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         return String.format("[%s] %s - %s (Log ID: %s)",
-                timestamp.format(formatter), action, details, logId);
+                timestamp.format(FORMATTER), action, getDetails(), logId);
     }
 }
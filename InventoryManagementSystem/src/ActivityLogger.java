@@ -6,47 +6,82 @@ import java.util.stream.Collectors;
 
 public class ActivityLogger {
     private List<ActivityLog> activityLogs;
+    // Writes are ordered by saveLock, which is never taken while holding this
+    // logger's own lock; logs already on disk are not written again.
+    private final Object saveLock;
+    private long changeCount;
+    private long savedChangeCount;
     private static final String LOG_FILE = "activity_logs.dat";
 
     public ActivityLogger() {
         this.activityLogs = new ArrayList<>();
+        this.saveLock = new Object();
         loadFromFile();
     }
 
     public void logActivity(String action, String details) {
-        ActivityLog log = new ActivityLog(action, details);
-        activityLogs.add(log);
+        appendActivity(action, details);
         saveToFile();
     }
 
-    public List<ActivityLog> getAllLogs() {
+    // Adds to memory only; the caller saves once it has released its own locks
+    public synchronized void appendActivity(String action, String details) {
+        activityLogs.add(new ActivityLog(action, details));
+        changeCount++;
+    }
+
+    // Keeps the arguments and formats the details only when the log is read,
+    // so the stock paths do not build text nobody may look at
+    public synchronized void appendActivity(String action, String detailsFormat,
+                                            Object... detailsArgs) {
+        activityLogs.add(new ActivityLog(action, detailsFormat, detailsArgs));
+        changeCount++;
+    }
+
+    public synchronized List<ActivityLog> getAllLogs() {
         return new ArrayList<>(activityLogs);
     }
 
-    public List<ActivityLog> getLogsByDateRange(LocalDateTime start, LocalDateTime end) {
+    public synchronized List<ActivityLog> getLogsByDateRange(LocalDateTime start, LocalDateTime end) {
         return activityLogs.stream()
                 .filter(log -> !log.getTimestamp().isBefore(start) &&
                         !log.getTimestamp().isAfter(end))
                 .collect(Collectors.toList());
     }
 
-    public List<ActivityLog> getRecentLogs(int count) {
+    public synchronized List<ActivityLog> getRecentLogs(int count) {
         int size = activityLogs.size();
         int fromIndex = Math.max(0, size - count);
         return new ArrayList<>(activityLogs.subList(fromIndex, size));
     }
 
+    // Serializes a copy taken under the lock, so logging continues while the
+    // file is being written
     public void saveToFile() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(LOG_FILE))) {
-            oos.writeObject(activityLogs);
-        } catch (IOException e) {
-            System.err.println("Error saving activity logs: " + e.getMessage());
+        synchronized (saveLock) {
+            List<ActivityLog> copy;
+            long savingChangeCount;
+            synchronized (this) {
+                if (changeCount == savedChangeCount) {
+                    return;
+                }
+                copy = new ArrayList<>(activityLogs);
+                savingChangeCount = changeCount;
+            }
+
+            try (ObjectOutputStream oos = new ObjectOutputStream(
+                    new FileOutputStream(LOG_FILE))) {
+                oos.writeObject(copy);
+            } catch (IOException e) {
+                System.err.println("Error saving activity logs: " + e.getMessage());
+                return;
+            }
+            savedChangeCount = savingChangeCount;
         }
     }
 
     @SuppressWarnings("unchecked")
-    public void loadFromFile() {
+    public synchronized void loadFromFile() {
         File file = new File(LOG_FILE);
         if (!file.exists()) {
             return;
@@ -61,7 +96,7 @@ public class ActivityLogger {
         }
     }
 
-    public void displayAllLogs() {
+    public synchronized void displayAllLogs() {
         if (activityLogs.isEmpty()) {
             System.out.println("No activity logs available.");
             return;
@@ -76,7 +111,7 @@ public class ActivityLogger {
         System.out.println("========================================");
     }
 
-    public void displayRecentLogs(int count) {
+    public synchronized void displayRecentLogs(int count) {
         List<ActivityLog> recentLogs = getRecentLogs(count);
         if (recentLogs.isEmpty()) {
             System.out.println("No activity logs available.");
@@ -1,5 +1,9 @@
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 
@@ -8,6 +12,8 @@ public class ConsoleUI {
     private final TransactionManager transactionManager;
     private final ActivityLogger activityLogger;
     private final Scanner scanner;
+    private static final DateTimeFormatter DATE_TIME_INPUT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
     public ConsoleUI() {
         this.scanner = new Scanner(System.in);
@@ -71,6 +77,7 @@ public class ConsoleUI {
             System.out.println("3. Remove Product");
             System.out.println("4. View All Products");
             System.out.println("5. View Product Details");
+            System.out.println("6. Compact Product History");
             System.out.println("0. Back to Main Menu");
             System.out.println("========================================");
 
@@ -82,6 +89,7 @@ public class ConsoleUI {
                 case 3 -> removeProduct();
                 case 4 -> inventoryManager.displayInventory();
                 case 5 -> viewProductDetails();
+                case 6 -> compactProductHistory();
                 case 0 -> back = true;
                 default -> System.out.println("\nInvalid choice!");
             }
@@ -154,12 +162,24 @@ public class ConsoleUI {
             }
         }
 
-        System.out.print("Quantity [" + product.getQuantity() + "]: ");
+        // Stock spread over several locations is adjusted one location at a time
+        String location = Product.DEFAULT_LOCATION;
+        if (product.getLocationStock().size() > 1) {
+            System.out.print("Stock is held at " + product.getLocationStock().keySet() +
+                    ". Location to adjust [" + Product.DEFAULT_LOCATION + "]: ");
+            String locationStr = lineScanner.nextLine().trim();
+            if (!locationStr.isEmpty()) {
+                location = locationStr.toUpperCase();
+            }
+        }
+
+        System.out.print("Quantity at " + location + " [" +
+                product.getLocationQuantity(location) + "]: ");
         String qtyStr = lineScanner.nextLine().trim();
+        Integer newQuantity = null;
         if (!qtyStr.isEmpty()) {
             try {
-                int quantity = Integer.parseInt(qtyStr);
-                product.setQuantity(quantity);
+                newQuantity = Integer.parseInt(qtyStr);
             } catch (NumberFormatException e) {
                 System.out.println("Invalid quantity, keeping current value.");
             }
@@ -172,6 +192,9 @@ public class ConsoleUI {
         }
 
         if (inventoryManager.updateProduct(product)) {
+            if (newQuantity != null) {
+                inventoryManager.adjustStockAt(id, location, newQuantity, "manual update");
+            }
             System.out.println("\n[SUCCESS] Product updated successfully!");
         }
     }
@@ -220,6 +243,23 @@ public class ConsoleUI {
         System.out.println(product);
         System.out.println("========================================");
 
+        Map<String, Integer> locationStock = product.getLocationStock();
+        if (locationStock.size() > 1) {
+            System.out.println("\nStock by Location:");
+            System.out.println("----------------------------------------");
+            locationStock.forEach((location, qty) ->
+                    System.out.printf("%-15s %d%n", location, qty));
+        }
+
+        List<ProductVersion> versions = product.getVersions();
+        if (versions.size() > 1) {
+            System.out.println("\nVersion History:");
+            System.out.println("----------------------------------------");
+            for (ProductVersion v : versions) {
+                System.out.println(v);
+            }
+        }
+
         List<Transaction> transactions = transactionManager.getTransactionsByProduct(id);
         if (!transactions.isEmpty()) {
             System.out.println("\nTransaction History:");
@@ -230,6 +270,12 @@ public class ConsoleUI {
         }
     }
 
+    private void compactProductHistory() {
+        int days = getIntInput("Keep product history for how many days? ");
+        int removed = inventoryManager.compactProductHistory(LocalDateTime.now().minusDays(days));
+        System.out.println("\n[SUCCESS] Removed " + removed + " old product versions.");
+    }
+
     private void handleTransactions() {
         boolean back = false;
         while (!back) {
@@ -240,6 +286,9 @@ public class ConsoleUI {
             System.out.println("2. Sale (Reduce Stock)");
             System.out.println("3. Restock");
             System.out.println("4. View All Transactions");
+            System.out.println("5. Import Stock Events from File");
+            System.out.println("6. Archive Old Transactions");
+            System.out.println("7. Transfer Stock Between Locations");
             System.out.println("0. Back to Main Menu");
             System.out.println("========================================");
 
@@ -250,6 +299,9 @@ public class ConsoleUI {
                 case 2 -> sellProduct();
                 case 3 -> restockProduct();
                 case 4 -> transactionManager.displayAllTransactions();
+                case 5 -> importStockEvents();
+                case 6 -> archiveOldTransactions();
+                case 7 -> transferStock();
                 case 0 -> back = true;
                 default -> System.out.println("\nInvalid choice!");
             }
@@ -273,8 +325,9 @@ public class ConsoleUI {
         System.out.println("\n=== Sell Product ===");
         String id = getStringInput("Product ID: ");
         int quantity = getIntInput("Quantity to sell: ");
+        String location = getLocationInput();
 
-        if (inventoryManager.sellProduct(id, quantity)) {
+        if (inventoryManager.sellProductAt(id, location, quantity)) {
             System.out.println("\n[SUCCESS] Sale recorded.");
         } else {
             System.out.println("\n[ERROR] Sale failed.");
@@ -285,14 +338,50 @@ public class ConsoleUI {
         System.out.println("\n=== Restock Product ===");
         String id = getStringInput("Product ID: ");
         int quantity = getIntInput("Quantity to restock: ");
+        String location = getLocationInput();
 
-        if (inventoryManager.restockProduct(id, quantity)) {
+        if (inventoryManager.restockProductAt(id, location, quantity)) {
             System.out.println("\n[SUCCESS] Restock recorded.");
         } else {
             System.out.println("\n[ERROR] Restock failed.");
         }
     }
 
+    private void transferStock() {
+        System.out.println("\n=== Transfer Stock ===");
+        String id = getStringInput("Product ID: ");
+        String from = getStringInput("From location: ");
+        String to = getStringInput("To location: ");
+        int quantity = getIntInput("Quantity to transfer: ");
+
+        if (inventoryManager.transferStock(id, from, to, quantity)) {
+            System.out.println("\n[SUCCESS] Transfer recorded.");
+        } else {
+            System.out.println("\n[ERROR] Transfer failed.");
+        }
+    }
+
+    private void importStockEvents() {
+        System.out.println("\n=== Import Stock Events ===");
+        System.out.println("Each line: TYPE,PRODUCT_ID,QUANTITY (TYPE is SALE, RESTOCK or PURCHASE)");
+        String path = getStringInput("File path: ");
+
+        StockEventImporter importer = new StockEventImporter(inventoryManager, 10000);
+        int applied = importer.importFile(path);
+        System.out.printf("%n[DONE] %d transactions applied, %d lines rejected.%n",
+                applied, importer.getRejectedCount());
+    }
+
+    private void archiveOldTransactions() {
+        int days = getIntInput("Archive transactions older than how many days? ");
+        int archived = transactionManager.archiveTransactionsBefore(LocalDateTime.now().minusDays(days));
+        if (archived > 0) {
+            activityLogger.logActivity("ARCHIVE_TRANSACTIONS",
+                    "Archived " + archived + " transactions older than " + days + " days");
+        }
+        System.out.println("\n[SUCCESS] Archived " + archived + " transactions.");
+    }
+
     private void handleReports() {
         boolean back = false;
         while (!back) {
@@ -303,6 +392,11 @@ public class ConsoleUI {
             System.out.println("2. Low Stock Report");
             System.out.println("3. Financial Summary");
             System.out.println("4. Recent Transactions (Last 10)");
+            System.out.println("5. Stock Level at Date/Time");
+            System.out.println("6. Top Sellers (Last 7 Days)");
+            System.out.println("7. Reorder Suggestions");
+            System.out.println("8. Inventory Value at Date/Time");
+            System.out.println("9. Stock by Location");
             System.out.println("0. Back to Main Menu");
             System.out.println("========================================");
 
@@ -313,6 +407,11 @@ public class ConsoleUI {
                 case 2 -> showLowStockReport();
                 case 3 -> showFinancialSummary();
                 case 4 -> transactionManager.displayRecentTransactions(10);
+                case 5 -> showStockAtTime();
+                case 6 -> showTopSellers(7);
+                case 7 -> showReorderSuggestions();
+                case 8 -> showInventoryValueAtTime();
+                case 9 -> showStockByLocation();
                 case 0 -> back = true;
                 default -> System.out.println("\nInvalid choice!");
             }
@@ -340,6 +439,73 @@ public class ConsoleUI {
         }
     }
 
+    private void showStockAtTime() {
+        String id = getStringInput("Product ID: ");
+        LocalDateTime time = getDateTimeInput("Date/time (yyyy-MM-dd HH:mm): ");
+        int stock = inventoryManager.getStockAt(id, time);
+        if (stock >= 0) {
+            System.out.printf("Stock of %s at %s: %d%n", id, time.format(DATE_TIME_INPUT), stock);
+        }
+    }
+
+    private void showStockByLocation() {
+        Map<String, Integer> stockByLocation = inventoryManager.getStockByLocation();
+        if (stockByLocation.isEmpty()) {
+            System.out.println("No stock recorded.");
+            return;
+        }
+        System.out.println("\n=== Stock by Location ===");
+        stockByLocation.forEach((location, qty) ->
+                System.out.printf("%-15s %d units%n", location, qty));
+        System.out.printf("%-15s %d units%n", "TOTAL", inventoryManager.getTotalStockCount());
+    }
+
+    private void showInventoryValueAtTime() {
+        LocalDateTime time = getDateTimeInput("Date/time (yyyy-MM-dd HH:mm): ");
+        System.out.printf("Inventory value at %s: $%.2f%n",
+                time.format(DATE_TIME_INPUT), inventoryManager.getInventoryValueAt(time));
+    }
+
+    private void showTopSellers(int days) {
+        Map<String, Integer> unitsSold = transactionManager.getUnitsSoldLastDays(days);
+        if (unitsSold.isEmpty()) {
+            System.out.println("No sales in the last " + days + " days.");
+            return;
+        }
+        System.out.println("\n=== Top Sellers (Last " + days + " Days) ===");
+        unitsSold.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(10)
+                .forEach(e -> {
+                    Product p = inventoryManager.getProduct(e.getKey());
+                    String name = p != null ? p.getName() : "(removed)";
+                    System.out.printf("%s - %s | Units sold: %d%n", e.getKey(), name, e.getValue());
+                });
+    }
+
+    private void showReorderSuggestions() {
+        int leadTime = getIntInput("Supplier lead time (days): ");
+        List<ReorderSuggestion> suggestions = inventoryManager.getReorderSuggestions(leadTime, 30);
+        if (suggestions.isEmpty()) {
+            System.out.println("No products are at or below their reorder point.");
+            return;
+        }
+        System.out.println("\n=== Reorder Suggestions (based on last 30 days of sales) ===");
+        for (ReorderSuggestion s : suggestions) {
+            System.out.println(s);
+        }
+
+        String confirm = getStringInput("\nRecord purchases for all suggestions? (yes/no): ");
+        if (confirm.equalsIgnoreCase("yes") || confirm.equalsIgnoreCase("y")) {
+            String supplier = getStringInput("Supplier: ");
+            for (ReorderSuggestion s : suggestions) {
+                inventoryManager.purchaseProduct(s.getProduct().getProductId(),
+                        s.getSuggestedQuantity(), supplier);
+            }
+            System.out.println("\n[SUCCESS] " + suggestions.size() + " purchases recorded.");
+        }
+    }
+
     private void showFinancialSummary() {
         System.out.println("\n=== Financial Summary ===");
         System.out.printf("Total Purchases: $%.2f%n", transactionManager.getTotalPurchases());
@@ -446,6 +612,23 @@ public class ConsoleUI {
         }
     }
 
+    private LocalDateTime getDateTimeInput(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            try {
+                return LocalDateTime.parse(scanner.nextLine().trim(), DATE_TIME_INPUT);
+            } catch (DateTimeParseException ex) {
+                System.out.println("Please enter a date/time as yyyy-MM-dd HH:mm.");
+            }
+        }
+    }
+
+    private String getLocationInput() {
+        System.out.print("Location [" + Product.DEFAULT_LOCATION + "]: ");
+        String location = scanner.nextLine().trim();
+        return location.isEmpty() ? Product.DEFAULT_LOCATION : location;
+    }
+
     private String getStringInput(String prompt) {
         System.out.print(prompt);
         String s = scanner.nextLine();
@@ -0,0 +1,48 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+// Time-ordered 64-bit IDs: 41 bits of milliseconds since EPOCH_MILLIS,
+// 10 bits of node ID and a 12-bit per-millisecond sequence. IDs from one
+// generator are unique and increasing even when the clock steps backwards.
+public class IdGenerator {
+    private static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final IdGenerator DEFAULT =
+            new IdGenerator(Long.getLong("inventory.nodeId", 0L));
+
+    private final long nodeId;
+    // (millis since epoch << SEQUENCE_BITS) | sequence of the last issued ID
+    private final AtomicLong lastState;
+
+    public IdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.lastState = new AtomicLong();
+    }
+
+    public static IdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        // When the sequence overflows, or the clock goes backwards, the
+        // increment simply carries into the next logical millisecond.
+        long state = lastState.updateAndGet(last -> Math.max(last + 1, now));
+        long millis = state >>> SEQUENCE_BITS;
+        return (millis << (NODE_BITS + SEQUENCE_BITS))
+                | (nodeId << SEQUENCE_BITS)
+                | (state & SEQUENCE_MASK);
+    }
+
+    // Fixed-width hex so that string IDs sort in the same order as numeric ones
+    public String nextIdString() {
+        String hex = Long.toHexString(nextId());
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+}
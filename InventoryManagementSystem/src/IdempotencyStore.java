@@ -0,0 +1,66 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Remembers the outcome of recent requests by idempotency key, along with a
+// description of the request so a key reused for something else can be told
+// apart from a retry. Entries are kept in insertion order, which is also
+// expiry order, so expired keys are always at the head and each call does
+// O(1) amortized work.
+public class IdempotencyStore {
+    private final LinkedHashMap<String, Entry> entries;
+    private final long windowMillis;
+    private final int maxEntries;
+
+    public IdempotencyStore(long windowMillis, int maxEntries) {
+        this.entries = new LinkedHashMap<>();
+        this.windowMillis = windowMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    public synchronized Boolean getResult(String key) {
+        evictExpired(System.currentTimeMillis());
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.result;
+    }
+
+    public synchronized String getRequest(String key) {
+        evictExpired(System.currentTimeMillis());
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.request;
+    }
+
+    public synchronized void putResult(String key, String request, boolean result) {
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+        if (entries.size() >= maxEntries) {
+            Iterator<String> oldest = entries.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        entries.put(key, new Entry(request, result, now + windowMillis));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext() && it.next().getValue().expiresAt <= now) {
+            it.remove();
+        }
+    }
+
+    private static class Entry {
+        private final String request;
+        private final boolean result;
+        private final long expiresAt;
+
+        private Entry(String request, boolean result, long expiresAt) {
+            this.request = request;
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.time.LocalDateTime;
+
+public class InventoryEvent {
+    private final long sequence;
+    private final InventoryEventType type;
+    private final String productId;
+    private final Product product;
+    private final Transaction transaction;
+    private final LocalDateTime timestamp;
+
+    public InventoryEvent(long sequence, InventoryEventType type, String productId,
+                          Product product, Transaction transaction) {
+        this.sequence = sequence;
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.transaction = transaction;
+        this.timestamp = LocalDateTime.now();
+    }
+
+    // Getters
+    public long getSequence() { return sequence; }
+    public InventoryEventType getType() { return type; }
+    public String getProductId() { return productId; }
+    public Product getProduct() { return product; }
+    public Transaction getTransaction() { return transaction; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s - Product ID: %s",
+                sequence, type.getDisplayName(), productId);
+    }
+}
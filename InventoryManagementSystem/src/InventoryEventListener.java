@@ -0,0 +1,3 @@
+public interface InventoryEventListener {
+    void onEvent(InventoryEvent event);
+}
@@ -0,0 +1,72 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class InventoryEventPublisher {
+    private final List<InventoryEventListener> listeners;
+    // Most recent events, so a subscriber can catch up from its last sequence
+    private final Deque<InventoryEvent> recentEvents;
+    private final int capacity;
+    private long nextSequence;
+
+    public InventoryEventPublisher(int capacity) {
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.recentEvents = new ArrayDeque<>(capacity);
+        this.capacity = capacity;
+        this.nextSequence = 1;
+    }
+
+    public void subscribe(InventoryEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(InventoryEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void publish(InventoryEventType type, String productId,
+                        Product product, Transaction transaction) {
+        dispatch(record(type, productId, product, transaction));
+    }
+
+    // Assigns the next sequence and keeps the event for catch-up without
+    // notifying listeners; the caller hands it to dispatch once it holds no
+    // locks of its own.
+    public synchronized InventoryEvent record(InventoryEventType type, String productId,
+                                              Product product, Transaction transaction) {
+        InventoryEvent event = new InventoryEvent(nextSequence++, type, productId,
+                product, transaction);
+        if (recentEvents.size() == capacity) {
+            recentEvents.removeFirst();
+        }
+        recentEvents.addLast(event);
+        return event;
+    }
+
+    public void dispatch(InventoryEvent event) {
+        for (InventoryEventListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                System.err.println("Error in inventory event listener: " + e.getMessage());
+            }
+        }
+    }
+
+    // Events with a sequence greater than afterSequence still held in memory
+    public synchronized List<InventoryEvent> getEventsSince(long afterSequence) {
+        List<InventoryEvent> events = new ArrayList<>();
+        for (InventoryEvent event : recentEvents) {
+            if (event.getSequence() > afterSequence) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    public synchronized long getLatestSequence() {
+        return nextSequence - 1;
+    }
+}
@@ -0,0 +1,17 @@
+public enum InventoryEventType {
+    PRODUCT_ADDED("Product Added"),
+    PRODUCT_UPDATED("Product Updated"),
+    PRODUCT_REMOVED("Product Removed"),
+    STOCK_CHANGED("Stock Changed"),
+    TRANSACTION_RECORDED("Transaction Recorded");
+
+    private final String displayName;
+
+    InventoryEventType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -1,22 +1,79 @@
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class InventoryManager {
     private Map<String, Product> products;
     private ActivityLogger activityLogger;
     private TransactionManager transactionManager;
+    private final InventoryEventPublisher eventPublisher;
+    private final IdempotencyStore idempotencyStore;
+    // Running totals, adjusted by each product's change since it was last
+    // counted. Values are whole cents so repeated adjustments cannot drift.
+    private final Map<String, Long> countedValues;
+    private final Map<String, Integer> countedStock;
+    private final Map<String, Map<String, Integer>> countedLocations;
+    private final Map<String, Integer> locationTotals;
+    // Product IDs by stock level at each location they are stocked at, so a
+    // low-stock query reads only the levels at or below its threshold
+    private final Map<String, TreeMap<Integer, Set<String>>> stockLevels;
+    private long totalValueCents;
+    private int totalStock;
+    // Product changes since the last full save, replayed on load
+    private int journalRecords;
+    // Disk writes prepared under the lock and performed after it is released,
+    // in the order they were queued. persistLock is never taken while holding
+    // the manager lock, so reports are not held up by a sale's disk I/O.
+    private final Queue<PendingWrite> pendingWrites;
+    private final Object persistLock;
+    // Events recorded under the manager lock and delivered to listeners after
+    // it is released, so a slow listener or one that calls back into the
+    // manager never runs inside a change. Delivery keeps sequence order.
+    private final Queue<InventoryEvent> pendingEvents;
+    private final ReentrantLock dispatchLock;
     private static final String INVENTORY_FILE = "inventory.dat";
+    private static final String JOURNAL_FILE = "inventory.journal";
+    private static final String DAMAGED_JOURNAL_FILE = "inventory.journal.damaged";
+    private static final int MIN_JOURNAL_RECORDS = 1000;
+    private static final byte JOURNAL_UPSERT = 1;
+    private static final byte JOURNAL_REMOVE = 2;
+    private static final int EVENT_HISTORY_SIZE = 10000;
+    private static final long IDEMPOTENCY_WINDOW_MILLIS = 10 * 60 * 1000L;
+    private static final int IDEMPOTENCY_MAX_KEYS = 100000;
 
     public InventoryManager(ActivityLogger activityLogger,
                             TransactionManager transactionManager) {
         this.products = new HashMap<>();
         this.activityLogger = activityLogger;
         this.transactionManager = transactionManager;
+        this.eventPublisher = new InventoryEventPublisher(EVENT_HISTORY_SIZE);
+        this.idempotencyStore = new IdempotencyStore(IDEMPOTENCY_WINDOW_MILLIS,
+                IDEMPOTENCY_MAX_KEYS);
+        this.countedValues = new HashMap<>();
+        this.countedStock = new HashMap<>();
+        this.countedLocations = new HashMap<>();
+        this.locationTotals = new HashMap<>();
+        this.stockLevels = new HashMap<>();
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.persistLock = new Object();
+        this.pendingEvents = new ConcurrentLinkedQueue<>();
+        this.dispatchLock = new ReentrantLock();
         loadFromFile();
     }
 
     public boolean addProduct(Product product) {
+        return mutate(() -> addProductLocked(product));
+    }
+
+    private boolean addProductLocked(Product product) {
         if (products.containsKey(product.getProductId())) {
             System.out.println("Product with ID " + product.getProductId() +
                     " already exists!");
@@ -24,139 +81,622 @@ public class InventoryManager {
         }
 
         products.put(product.getProductId(), product);
-        activityLogger.logActivity("ADD_PRODUCT",
+        updateTotals(product);
+        publishEvent(InventoryEventType.PRODUCT_ADDED,
+                product.getProductId(), new Product(product), null);
+        if (product.getQuantity() != 0) {
+            recordTransaction(product, new Transaction(product.getProductId(),
+                    product.getName(), TransactionType.ADJUSTMENT,
+                    product.getQuantity(), product.getPrice()));
+        }
+        activityLogger.appendActivity("ADD_PRODUCT",
                 "Added product: " + product.getName() + " (ID: " +
                         product.getProductId() + ")");
-        saveToFile();
+        persistChanges(List.of(product));
         return true;
     }
 
+    // Bulk load for seeding a catalog: adds every product whose ID is new,
+    // records their opening stock in one transaction batch and writes one
+    // full save instead of a journal record per product. Returns the number
+    // of products added.
+    public int addProducts(Collection<Product> newProducts) {
+        return mutate(() -> addProductsLocked(newProducts));
+    }
+
+    private int addProductsLocked(Collection<Product> newProducts) {
+        List<Transaction> batch = new ArrayList<>();
+        List<Product> stocked = new ArrayList<>();
+        int added = 0;
+        for (Product product : newProducts) {
+            if (products.putIfAbsent(product.getProductId(), product) != null) {
+                System.out.println("Product with ID " + product.getProductId() +
+                        " already exists!");
+                continue;
+            }
+
+            updateTotals(product);
+            publishEvent(InventoryEventType.PRODUCT_ADDED,
+                    product.getProductId(), new Product(product), null);
+            if (product.getQuantity() != 0) {
+                batch.add(new Transaction(product.getProductId(), product.getName(),
+                        TransactionType.ADJUSTMENT, product.getQuantity(), product.getPrice()));
+                stocked.add(product);
+            }
+            added++;
+        }
+
+        if (added == 0) {
+            return 0;
+        }
+
+        transactionManager.appendTransactions(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            publishStockChange(stocked.get(i), batch.get(i));
+        }
+        activityLogger.appendActivity("ADD_PRODUCTS", "Added " + added + " products");
+        queueSnapshot();
+        return added;
+    }
+
     public boolean removeProduct(String productId) {
+        return mutate(() -> removeProductLocked(productId));
+    }
+
+    private boolean removeProductLocked(String productId) {
         Product product = products.remove(productId);
         if (product == null) {
             System.out.println("Product not found!");
             return false;
         }
 
-        activityLogger.logActivity("REMOVE_PRODUCT",
+        removeFromTotals(productId);
+        publishEvent(InventoryEventType.PRODUCT_REMOVED,
+                productId, new Product(product), null);
+        activityLogger.appendActivity("REMOVE_PRODUCT",
                 "Removed product: " + product.getName() + " (ID: " + productId + ")");
-        saveToFile();
+        persistRemoval(productId);
         return true;
     }
 
     public boolean updateProduct(Product updatedProduct) {
-        if (!products.containsKey(updatedProduct.getProductId())) {
+        return mutate(() -> updateProductLocked(updatedProduct));
+    }
+
+    // Applies the edited details to the stored product, which keeps its
+    // stock, locations and version history; stock changes go through
+    // adjustStock so they are recorded as transactions.
+    private boolean updateProductLocked(Product updatedProduct) {
+        Product product = products.get(updatedProduct.getProductId());
+        if (product == null) {
             System.out.println("Product not found!");
             return false;
         }
 
-        products.put(updatedProduct.getProductId(), updatedProduct);
-        activityLogger.logActivity("UPDATE_PRODUCT",
-                "Updated product: " + updatedProduct.getName() +
-                        " (ID: " + updatedProduct.getProductId() + ")");
-        saveToFile();
+        if (!product.updateDetails(updatedProduct)) {
+            return true;
+        }
+
+        updateTotals(product);
+        publishEvent(InventoryEventType.PRODUCT_UPDATED,
+                product.getProductId(), new Product(product), null);
+        activityLogger.appendActivity("UPDATE_PRODUCT",
+                "Updated product: " + product.getName() +
+                        " (ID: " + product.getProductId() + ")");
+        persistChanges(List.of(product));
         return true;
     }
 
-    public Product getProduct(String productId) {
-        return products.get(productId);
+    // Callers get copies; changes go back through updateProduct and the
+    // stock operations so they are journaled and counted in the totals.
+    public synchronized Product getProduct(String productId) {
+        Product product = products.get(productId);
+        return product == null ? null : new Product(product);
     }
 
     public List<Product> getAllProducts() {
-        return new ArrayList<>(products.values());
+        return getSnapshot();
+    }
+
+    // Point-in-time copies taken under the lock; reports iterate these so
+    // concurrent sales never tear a total or break iteration.
+    public List<Product> getSnapshot() {
+        List<Product> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(products.size());
+            for (Product product : products.values()) {
+                snapshot.add(new Product(product));
+            }
+        }
+        return snapshot;
+    }
+
+    // Filters the live products under the lock and copies only the matches
+    private synchronized List<Product> findProducts(Predicate<Product> filter) {
+        List<Product> matches = new ArrayList<>();
+        for (Product product : products.values()) {
+            if (filter.test(product)) {
+                matches.add(new Product(product));
+            }
+        }
+        return matches;
     }
 
     public List<Product> searchProducts(String keyword) {
         String lowerKeyword = keyword.toLowerCase();
-        return products.values().stream()
-                .filter(p -> p.getName().toLowerCase().contains(lowerKeyword) ||
-                        p.getDescription().toLowerCase().contains(lowerKeyword) ||
-                        p.getCategory().toLowerCase().contains(lowerKeyword) ||
-                        p.getProductId().toLowerCase().contains(lowerKeyword))
-                .collect(Collectors.toList());
+        return findProducts(p -> p.getName().toLowerCase().contains(lowerKeyword) ||
+                p.getDescription().toLowerCase().contains(lowerKeyword) ||
+                p.getCategory().toLowerCase().contains(lowerKeyword) ||
+                p.getProductId().toLowerCase().contains(lowerKeyword));
     }
 
     public List<Product> getProductsByCategory(String category) {
-        return products.values().stream()
-                .filter(p -> p.getCategory().equalsIgnoreCase(category))
-                .collect(Collectors.toList());
+        return findProducts(p -> p.getCategory().equalsIgnoreCase(category));
     }
 
     public List<Product> getLowStockProducts(int threshold) {
-        return products.values().stream()
-                .filter(p -> p.getQuantity() <= threshold)
-                .collect(Collectors.toList());
+        return findProducts(p -> p.getQuantity() <= threshold);
     }
 
-    public Set<String> getAllCategories() {
+    // Only products that sold within the window can have a velocity-based
+    // reorder point, so the rollup's sold set is scanned, not the catalog.
+    public List<ReorderSuggestion> getReorderSuggestions(int leadTimeDays, int windowDays) {
+        List<ReorderSuggestion> suggestions = new ArrayList<>();
+
+        synchronized (this) {
+            Map<String, Integer> unitsSold = transactionManager.getUnitsSoldLastDays(windowDays);
+            for (Map.Entry<String, Integer> entry : unitsSold.entrySet()) {
+                Product product = products.get(entry.getKey());
+                if (product == null || entry.getValue() <= 0) {
+                    continue;
+                }
+
+                double dailyRate = (double) entry.getValue() / windowDays;
+                int reorderPoint = (int) Math.ceil(dailyRate * leadTimeDays);
+                if (product.getQuantity() <= reorderPoint) {
+                    int suggested = Math.max(1, 2 * reorderPoint - product.getQuantity());
+                    suggestions.add(new ReorderSuggestion(new Product(product),
+                            dailyRate, reorderPoint, suggested));
+                }
+            }
+        }
+
+        suggestions.sort(Comparator.comparingDouble(ReorderSuggestion::getDaysOfCover));
+        return suggestions;
+    }
+
+    public synchronized Set<String> getAllCategories() {
         return products.values().stream()
                 .map(Product::getCategory)
                 .collect(Collectors.toSet());
     }
 
     public boolean purchaseProduct(String productId, int quantity, String supplier) {
+        return mutate(() -> purchaseProductLocked(productId, quantity, supplier));
+    }
+
+    private boolean purchaseProductLocked(String productId, int quantity, String supplier) {
         Product product = products.get(productId);
         if (product == null) {
             System.out.println("Product not found!");
             return false;
         }
 
+        if (quantity <= 0) {
+            System.out.println("Invalid quantity!");
+            return false;
+        }
+
         product.addQuantity(quantity);
         Transaction transaction = new Transaction(productId, product.getName(),
                 TransactionType.PURCHASE, quantity, product.getPrice());
-        transactionManager.recordTransaction(transaction);
+        recordTransaction(product, transaction);
 
-        activityLogger.logActivity("PURCHASE_PRODUCT",
-                "Purchased " + quantity + " units of " + product.getName() +
-                        " from " + supplier);
-        saveToFile();
+        activityLogger.appendActivity("PURCHASE_PRODUCT",
+                "Purchased %d units of %s from %s", quantity, product.getName(), supplier);
+        persistChanges(List.of(product));
         return true;
     }
 
     public boolean sellProduct(String productId, int quantity) {
+        return mutate(() -> sellProductLocked(productId, Product.DEFAULT_LOCATION, quantity));
+    }
+
+    public boolean sellProductAt(String productId, String location, int quantity) {
+        String normalized = normalizeLocation(location);
+        if (normalized == null) {
+            return false;
+        }
+        return mutate(() -> sellProductLocked(productId, normalized, quantity));
+    }
+
+    private boolean sellProductLocked(String productId, String location, int quantity) {
         Product product = products.get(productId);
         if (product == null) {
             System.out.println("Product not found!");
             return false;
         }
 
-        if (product.getQuantity() < quantity) {
-            System.out.println("Insufficient stock! Available: " +
-                    product.getQuantity());
+        if (quantity <= 0) {
+            System.out.println("Invalid quantity!");
+            return false;
+        }
+
+        int available = product.getLocationQuantity(location);
+        if (available < quantity) {
+            System.out.println("Insufficient stock" + atLocation(location) +
+                    "! Available: " + available);
             return false;
         }
 
-        product.reduceQuantity(quantity);
+        product.reduceQuantity(location, quantity);
         Transaction transaction = new Transaction(productId, product.getName(),
-                TransactionType.SALE, quantity, product.getPrice());
-        transactionManager.recordTransaction(transaction);
+                TransactionType.SALE, quantity, product.getPrice(),
+                transactionLocation(location), null);
+        recordTransaction(product, transaction);
 
-        activityLogger.logActivity("SELL_PRODUCT",
-                "Sold " + quantity + " units of " + product.getName());
-        saveToFile();
+        activityLogger.appendActivity("SELL_PRODUCT",
+                "Sold %d units of %s%s", quantity, product.getName(), atLocation(location));
+        persistChanges(List.of(product));
         return true;
     }
 
     public boolean restockProduct(String productId, int quantity) {
+        return mutate(() -> restockProductLocked(productId, Product.DEFAULT_LOCATION, quantity));
+    }
+
+    public boolean restockProductAt(String productId, String location, int quantity) {
+        String normalized = normalizeLocation(location);
+        if (normalized == null) {
+            return false;
+        }
+        return mutate(() -> restockProductLocked(productId, normalized, quantity));
+    }
+
+    private boolean restockProductLocked(String productId, String location, int quantity) {
         Product product = products.get(productId);
         if (product == null) {
             System.out.println("Product not found!");
             return false;
         }
 
-        product.addQuantity(quantity);
+        if (quantity <= 0) {
+            System.out.println("Invalid quantity!");
+            return false;
+        }
+
+        product.addQuantity(location, quantity);
+        Transaction transaction = new Transaction(productId, product.getName(),
+                TransactionType.RESTOCK, quantity, product.getPrice(),
+                transactionLocation(location), null);
+        recordTransaction(product, transaction);
+
+        activityLogger.appendActivity("RESTOCK_PRODUCT",
+                "Restocked %d units of %s%s", quantity, product.getName(), atLocation(location));
+        persistChanges(List.of(product));
+        return true;
+    }
+
+    public boolean transferStock(String productId, String fromLocation,
+                                 String toLocation, int quantity) {
+        String from = normalizeLocation(fromLocation);
+        String to = normalizeLocation(toLocation);
+        if (from == null || to == null) {
+            return false;
+        }
+        return mutate(() -> transferStockLocked(productId, from, to, quantity));
+    }
+
+    private boolean transferStockLocked(String productId, String fromLocation,
+                                        String toLocation, int quantity) {
+        Product product = products.get(productId);
+        if (product == null) {
+            System.out.println("Product not found!");
+            return false;
+        }
+
+        if (quantity <= 0 || fromLocation.equals(toLocation)) {
+            System.out.println("Invalid transfer!");
+            return false;
+        }
+
+        int available = product.getLocationQuantity(fromLocation);
+        if (available < quantity) {
+            System.out.println("Insufficient stock at " + fromLocation +
+                    "! Available: " + available);
+            return false;
+        }
+
+        product.transferQuantity(fromLocation, toLocation, quantity);
         Transaction transaction = new Transaction(productId, product.getName(),
-                TransactionType.RESTOCK, quantity, product.getPrice());
-        transactionManager.recordTransaction(transaction);
+                TransactionType.TRANSFER, quantity, product.getPrice(),
+                fromLocation, toLocation);
+        recordTransaction(product, transaction);
 
-        activityLogger.logActivity("RESTOCK_PRODUCT",
-                "Restocked " + quantity + " units of " + product.getName());
-        saveToFile();
+        activityLogger.appendActivity("TRANSFER_STOCK",
+                "Transferred " + quantity + " units of " + product.getName() +
+                        " from " + fromLocation + " to " + toLocation);
+        persistChanges(List.of(product));
         return true;
     }
 
+    // Location names are case-insensitive and stored upper-case
+    private String normalizeLocation(String location) {
+        if (location == null || location.isBlank()) {
+            System.out.println("Invalid location!");
+            return null;
+        }
+        return location.trim().toUpperCase();
+    }
+
+    private String atLocation(String location) {
+        return Product.DEFAULT_LOCATION.equals(location) ? "" : " at " + location;
+    }
+
+    private String transactionLocation(String location) {
+        return Product.DEFAULT_LOCATION.equals(location) ? null : location;
+    }
+
+    // Idempotent variants: a retry carrying the same key and the same request
+    // within the dedup window returns the original outcome instead of applying
+    // the change again. A key reused for a different request is refused.
+
+    public boolean purchaseProduct(String productId, int quantity,
+                                   String supplier, String idempotencyKey) {
+        return runIdempotent(idempotencyKey,
+                requestFingerprint(TransactionType.PURCHASE, productId, quantity, supplier),
+                () -> purchaseProductLocked(productId, quantity, supplier));
+    }
+
+    public boolean sellProduct(String productId, int quantity,
+                               String idempotencyKey) {
+        return runIdempotent(idempotencyKey,
+                requestFingerprint(TransactionType.SALE, productId, quantity, null),
+                () -> sellProductLocked(productId, Product.DEFAULT_LOCATION, quantity));
+    }
+
+    public boolean restockProduct(String productId, int quantity,
+                                  String idempotencyKey) {
+        return runIdempotent(idempotencyKey,
+                requestFingerprint(TransactionType.RESTOCK, productId, quantity, null),
+                () -> restockProductLocked(productId, Product.DEFAULT_LOCATION, quantity));
+    }
+
+    private boolean runIdempotent(String idempotencyKey, String request,
+                                  Supplier<Boolean> change) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            System.out.println("Idempotency key is required!");
+            return false;
+        }
+
+        return mutate(() -> {
+            String previousRequest = idempotencyStore.getRequest(idempotencyKey);
+            if (previousRequest != null && !previousRequest.equals(request)) {
+                System.out.println("Idempotency key " + idempotencyKey +
+                        " was already used for a different request!");
+                return false;
+            }
+
+            Boolean previous = idempotencyStore.getResult(idempotencyKey);
+            if (previous != null) {
+                return previous;
+            }
+            boolean result = change.get();
+            idempotencyStore.putResult(idempotencyKey, request, result);
+            return result;
+        });
+    }
+
+    private String requestFingerprint(TransactionType type, String productId,
+                                      int quantity, String supplier) {
+        return type.name() + "|" + productId + "|" + quantity + "|" + supplier;
+    }
+
+    // Sets the product's total stock; the difference is taken from or added
+    // to DEFAULT_LOCATION, so an adjustment that needs more than the stock
+    // held there is refused rather than leaving it negative.
+    public boolean adjustStock(String productId, int newQuantity, String reason) {
+        return mutate(() -> {
+            Product product = products.get(productId);
+            if (product == null) {
+                System.out.println("Product not found!");
+                return false;
+            }
+
+            int atDefault = product.getLocationQuantity(Product.DEFAULT_LOCATION);
+            int newAtDefault = atDefault + newQuantity - product.getQuantity();
+            if (newAtDefault < 0) {
+                System.out.println("Cannot adjust stock to " + newQuantity + ": only " +
+                        atDefault + " units are at " + Product.DEFAULT_LOCATION +
+                        ". Adjust the other locations individually.");
+                return false;
+            }
+            return adjustStockAtLocked(productId, Product.DEFAULT_LOCATION, newAtDefault, reason);
+        });
+    }
+
+    // Sets the stock held at one location
+    public boolean adjustStockAt(String productId, String location, int newQuantity, String reason) {
+        String normalized = normalizeLocation(location);
+        if (normalized == null) {
+            return false;
+        }
+        return mutate(() -> adjustStockAtLocked(productId, normalized, newQuantity, reason));
+    }
+
+    private boolean adjustStockAtLocked(String productId, String location, int newQuantity,
+                                        String reason) {
+        Product product = products.get(productId);
+        if (product == null) {
+            System.out.println("Product not found!");
+            return false;
+        }
+
+        if (newQuantity < 0) {
+            System.out.println("Stock cannot be negative!");
+            return false;
+        }
+
+        int delta = newQuantity - product.getLocationQuantity(location);
+        if (delta == 0) {
+            return true;
+        }
+
+        product.setLocationQuantity(location, newQuantity);
+        Transaction transaction = new Transaction(productId, product.getName(),
+                TransactionType.ADJUSTMENT, delta, product.getPrice(),
+                transactionLocation(location), null);
+        recordTransaction(product, transaction);
+
+        activityLogger.appendActivity("ADJUST_STOCK",
+                "Adjusted stock of " + product.getName() + " by " + delta +
+                        atLocation(location) + " (" + reason + ")");
+        persistChanges(List.of(product));
+        return true;
+    }
+
+    public int compactProductHistory(LocalDateTime cutoff) {
+        return mutate(() -> compactProductHistoryLocked(cutoff));
+    }
+
+    private int compactProductHistoryLocked(LocalDateTime cutoff) {
+        int removed = 0;
+        for (Product product : products.values()) {
+            removed += product.compactVersions(cutoff);
+        }
+
+        if (removed > 0) {
+            activityLogger.appendActivity("COMPACT_HISTORY",
+                    "Removed " + removed + " product versions older than " + cutoff.toLocalDate());
+            queueSnapshot();
+        }
+        return removed;
+    }
+
+    // Stock is derived backwards from the current level, so products that
+    // predate adjustment tracking still answer correctly for recent times.
+    // The level and a transaction mark are taken under the lock; the
+    // roll-back, which may read the archive, runs after it is released.
+    public int getStockAt(String productId, LocalDateTime time) {
+        int quantity;
+        long mark;
+        synchronized (this) {
+            Product product = products.get(productId);
+            if (product == null) {
+                System.out.println("Product not found!");
+                return -1;
+            }
+            quantity = product.getQuantity();
+            mark = transactionManager.getTransactionMark();
+        }
+
+        return quantity - transactionManager.getNetQuantityChangeSince(productId, time, mark);
+    }
+
+    // Applies many stock events of one type under a single lock, recording
+    // one transaction per product and persisting the inventory once for the
+    // whole batch. A sale event the remaining stock cannot cover is rejected
+    // on its own, as it would have been if applied alone. Returns the number
+    // of events that could not be applied.
+    public int applyStockBatch(TransactionType type, Map<String, List<Integer>> events) {
+        return mutate(() -> applyStockBatchLocked(type, events));
+    }
+
+    private int applyStockBatchLocked(TransactionType type, Map<String, List<Integer>> events) {
+        List<Transaction> batch = new ArrayList<>();
+        List<Product> changed = new ArrayList<>();
+        int failed = 0;
+
+        for (Map.Entry<String, List<Integer>> entry : events.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                System.out.println("Product not found: " + entry.getKey());
+                failed += entry.getValue().size();
+                continue;
+            }
+
+            int quantity = 0;
+            if (type == TransactionType.SALE) {
+                int available = product.getLocationQuantity(Product.DEFAULT_LOCATION);
+                for (int eventQuantity : entry.getValue()) {
+                    if (eventQuantity > available - quantity) {
+                        System.out.println("Insufficient stock for " + entry.getKey() +
+                                "! Available: " + (available - quantity));
+                        failed++;
+                    } else {
+                        quantity += eventQuantity;
+                    }
+                }
+                if (quantity == 0) {
+                    continue;
+                }
+                product.reduceQuantity(quantity);
+            } else {
+                // Events that would push the stock past the int range are rejected
+                for (int eventQuantity : entry.getValue()) {
+                    if ((long) product.getQuantity() + quantity + eventQuantity > Integer.MAX_VALUE) {
+                        System.out.println("Quantity too large for " + entry.getKey() +
+                                ": " + eventQuantity);
+                        failed++;
+                    } else {
+                        quantity += eventQuantity;
+                    }
+                }
+                if (quantity == 0) {
+                    continue;
+                }
+                product.addQuantity(quantity);
+            }
+
+            batch.add(new Transaction(product.getProductId(), product.getName(),
+                    type, quantity, product.getPrice()));
+            changed.add(product);
+        }
+
+        if (batch.isEmpty()) {
+            return failed;
+        }
+
+        transactionManager.appendTransactions(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            publishStockChange(changed.get(i), batch.get(i));
+        }
+
+        activityLogger.appendActivity("BATCH_" + type.name(),
+                "Applied " + batch.size() + " " + type.getDisplayName().toLowerCase() +
+                        " records from batch import");
+        persistChanges(changed);
+        return failed;
+    }
+
+    private void recordTransaction(Product product, Transaction transaction) {
+        transactionManager.appendTransaction(transaction);
+        publishStockChange(product, transaction);
+    }
+
+    private void publishStockChange(Product product, Transaction transaction) {
+        updateTotals(product);
+        publishEvent(InventoryEventType.STOCK_CHANGED,
+                product.getProductId(), new Product(product), transaction);
+        publishEvent(InventoryEventType.TRANSACTION_RECORDED,
+                product.getProductId(), null, transaction);
+    }
+
+    public void addEventListener(InventoryEventListener listener) {
+        eventPublisher.subscribe(listener);
+    }
+
+    public void removeEventListener(InventoryEventListener listener) {
+        eventPublisher.unsubscribe(listener);
+    }
+
+    public List<InventoryEvent> getEventsSince(long afterSequence) {
+        return eventPublisher.getEventsSince(afterSequence);
+    }
+
     public void displayInventory() {
-        if (products.isEmpty()) {
+        List<Product> snapshot = getSnapshot();
+        if (snapshot.isEmpty()) {
             System.out.println("Inventory is empty.");
             return;
         }
@@ -168,7 +708,7 @@ public class InventoryManager {
                 "ID", "Name", "Category", "Price", "Quantity");
         System.out.println("----------------------------------------");
 
-        for (Product product : products.values()) {
+        for (Product product : snapshot) {
             System.out.printf("%-10s %-25s %-15s $%-11.2f %-10d%n",
                     product.getProductId(),
                     truncate(product.getName(), 25),
@@ -186,44 +726,392 @@ public class InventoryManager {
         return str;
     }
 
+    // Runs a change under the manager lock, then writes what it queued once
+    // the lock is free again
+    private <T> T mutate(Supplier<T> change) {
+        T result;
+        synchronized (this) {
+            result = change.get();
+        }
+        flushWrites();
+        dispatchEvents();
+        return result;
+    }
+
+    private void publishEvent(InventoryEventType type, String productId,
+                              Product product, Transaction transaction) {
+        pendingEvents.add(eventPublisher.record(type, productId, product, transaction));
+    }
+
+    // Whichever caller holds dispatchLock delivers every queued event; others
+    // return at once instead of waiting behind its listeners. A listener that
+    // changes the inventory re-enters here and leaves its events to the
+    // delivery already under way. The queue is re-checked after unlocking so
+    // an event queued just before the release is not left behind.
+    private void dispatchEvents() {
+        while (!pendingEvents.isEmpty() && dispatchLock.tryLock()) {
+            try {
+                if (dispatchLock.getHoldCount() > 1) {
+                    return;
+                }
+                InventoryEvent event;
+                while ((event = pendingEvents.poll()) != null) {
+                    eventPublisher.dispatch(event);
+                }
+            } finally {
+                dispatchLock.unlock();
+            }
+        }
+    }
+
+    // Writes the full catalog and clears the journal it now supersedes
     public void saveToFile() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(INVENTORY_FILE))) {
-            oos.writeObject(products);
+        synchronized (this) {
+            queueSnapshot();
+        }
+        flushWrites();
+    }
+
+    private void queueSnapshot() {
+        try {
+            pendingWrites.add(new PendingWrite(true, serialize(products)));
+            journalRecords = 0;
         } catch (IOException e) {
             System.err.println("Error saving inventory: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("unchecked")
+    private byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Drains the queued writes in order, sending consecutive journal records
+    // through one stream, then saves the transaction and activity logs.
+    // Whichever caller gets here first also writes records queued by others.
+    private void flushWrites() {
+        synchronized (persistLock) {
+            PendingWrite write = pendingWrites.poll();
+            while (write != null) {
+                if (write.snapshot) {
+                    writeSnapshot(write.data);
+                    write = pendingWrites.poll();
+                    continue;
+                }
+
+                try (OutputStream out = new BufferedOutputStream(
+                        new FileOutputStream(JOURNAL_FILE, true))) {
+                    while (write != null && !write.snapshot) {
+                        out.write(write.data);
+                        write = pendingWrites.poll();
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error writing inventory journal: " + e.getMessage());
+                    synchronized (this) {
+                        queueSnapshot();
+                    }
+                    write = pendingWrites.poll();
+                }
+            }
+        }
+        transactionManager.saveToFile();
+        activityLogger.saveToFile();
+    }
+
+    private void writeSnapshot(byte[] data) {
+        try (OutputStream out = new FileOutputStream(INVENTORY_FILE)) {
+            out.write(data);
+        } catch (IOException e) {
+            System.err.println("Error saving inventory: " + e.getMessage());
+            return;
+        }
+
+        new File(JOURNAL_FILE).delete();
+    }
+
     public void loadFromFile() {
+        synchronized (this) {
+            loadFromFileLocked();
+        }
+        flushWrites();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadFromFileLocked() {
         File file = new File(INVENTORY_FILE);
+        if (file.exists()) {
+            try (ObjectInputStream ois = new ObjectInputStream(
+                    new FileInputStream(INVENTORY_FILE))) {
+                products = (Map<String, Product>) ois.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                System.err.println("Error loading inventory: " + e.getMessage());
+                products = new HashMap<>();
+            }
+        }
+        replayJournal();
+        rebuildTotals();
+    }
+
+    // Queues only the changed products for the journal, so a sale writes one
+    // record instead of the whole catalog. The journal is folded back into a
+    // full save once it outgrows the catalog.
+    private void persistChanges(Collection<Product> changed) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Product product : changed) {
+                byte[] record = serialize(product);
+                out.writeByte(JOURNAL_UPSERT);
+                out.writeUTF(product.getProductId());
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing inventory journal: " + e.getMessage());
+            queueSnapshot();
+            return;
+        }
+        pendingWrites.add(new PendingWrite(false, bytes.toByteArray()));
+        journalRecords += changed.size();
+        compactJournalIfNeeded();
+    }
+
+    private void persistRemoval(String productId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(JOURNAL_REMOVE);
+            out.writeUTF(productId);
+        } catch (IOException e) {
+            System.err.println("Error writing inventory journal: " + e.getMessage());
+            queueSnapshot();
+            return;
+        }
+        pendingWrites.add(new PendingWrite(false, bytes.toByteArray()));
+        journalRecords++;
+        compactJournalIfNeeded();
+    }
+
+    private void compactJournalIfNeeded() {
+        if (journalRecords >= Math.max(MIN_JOURNAL_RECORDS, products.size())) {
+            queueSnapshot();
+        }
+    }
+
+    // A record cut short by a crash mid-write ends the replay; every record
+    // before it is still applied and the catalog is re-saved so that later
+    // appends do not land behind the damaged tail. A product record that
+    // cannot be read is skipped using its length prefix. If the journal
+    // cannot be followed at all, replay stops there. In both cases a copy of
+    // the journal is kept before it is folded into the catalog.
+    private void replayJournal() {
+        File file = new File(JOURNAL_FILE);
+        journalRecords = 0;
         if (!file.exists()) {
             return;
         }
 
-        try (ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(INVENTORY_FILE))) {
-            products = (Map<String, Product>) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading inventory: " + e.getMessage());
-            products = new HashMap<>();
+        boolean damaged = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)))) {
+            int op;
+            while ((op = in.read()) != -1) {
+                if (op != JOURNAL_UPSERT && op != JOURNAL_REMOVE) {
+                    throw new StreamCorruptedException("unknown record type " + op);
+                }
+                String productId = in.readUTF();
+                if (op == JOURNAL_REMOVE) {
+                    products.remove(productId);
+                } else {
+                    int length = in.readInt();
+                    if (length < 0 || length > file.length()) {
+                        throw new StreamCorruptedException("bad record length " + length);
+                    }
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    try (ObjectInputStream ois = new ObjectInputStream(
+                            new ByteArrayInputStream(bytes))) {
+                        products.put(productId, (Product) ois.readObject());
+                    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                        System.err.println("Skipping unreadable journal record for " +
+                                productId + ": " + e.getMessage());
+                        damaged = true;
+                    }
+                }
+                journalRecords++;
+            }
+            if (!damaged) {
+                return;
+            }
+        } catch (EOFException e) {
+            System.err.println("Inventory journal ends in an incomplete record; ignoring it.");
+        } catch (IOException e) {
+            System.err.println("Error replaying inventory journal: " + e.getMessage());
+            damaged = true;
         }
+
+        if (damaged && !keepDamagedJournal(file)) {
+            return;
+        }
+        queueSnapshot();
     }
 
-    public double getTotalInventoryValue() {
-        return products.values().stream()
-                .mapToDouble(p -> p.getPrice() * p.getQuantity())
-                .sum();
+    // Returns false if no copy could be made; the journal is then left in
+    // place rather than being folded into the catalog and deleted.
+    private boolean keepDamagedJournal(File file) {
+        try {
+            Files.copy(file.toPath(), Paths.get(DAMAGED_JOURNAL_FILE),
+                    StandardCopyOption.REPLACE_EXISTING);
+            System.err.println("A copy of the damaged journal was kept in " + DAMAGED_JOURNAL_FILE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error keeping damaged inventory journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void updateTotals(Product product) {
+        long value = Math.round(product.getPrice() * product.getQuantity() * 100);
+        Long previousValue = countedValues.put(product.getProductId(), value);
+        Integer previousStock = countedStock.put(product.getProductId(), product.getQuantity());
+        totalValueCents += value - (previousValue == null ? 0 : previousValue);
+        totalStock += product.getQuantity() - (previousStock == null ? 0 : previousStock);
+
+        Map<String, Integer> locations = new HashMap<>(product.getLocationStock());
+        subtractLocations(product.getProductId(),
+                countedLocations.put(product.getProductId(), locations));
+        locations.forEach((location, stock) -> {
+            if (stock != 0) {
+                locationTotals.merge(location, stock, Integer::sum);
+            }
+            stockLevels.computeIfAbsent(location, l -> new TreeMap<>())
+                    .computeIfAbsent(stock, s -> new HashSet<>())
+                    .add(product.getProductId());
+        });
+    }
+
+    private void subtractLocations(String productId, Map<String, Integer> counted) {
+        if (counted == null) {
+            return;
+        }
+        counted.forEach((location, stock) -> {
+            if (locationTotals.merge(location, -stock, Integer::sum) == 0) {
+                locationTotals.remove(location);
+            }
+
+            TreeMap<Integer, Set<String>> levels = stockLevels.get(location);
+            Set<String> ids = levels.get(stock);
+            ids.remove(productId);
+            if (ids.isEmpty()) {
+                levels.remove(stock);
+                if (levels.isEmpty()) {
+                    stockLevels.remove(location);
+                }
+            }
+        });
+    }
+
+    private void removeFromTotals(String productId) {
+        Long previousValue = countedValues.remove(productId);
+        Integer previousStock = countedStock.remove(productId);
+        totalValueCents -= previousValue == null ? 0 : previousValue;
+        totalStock -= previousStock == null ? 0 : previousStock;
+        subtractLocations(productId, countedLocations.remove(productId));
     }
 
-    public int getTotalProductCount() {
+    private void rebuildTotals() {
+        countedValues.clear();
+        countedStock.clear();
+        countedLocations.clear();
+        locationTotals.clear();
+        stockLevels.clear();
+        totalValueCents = 0;
+        totalStock = 0;
+        for (Product product : products.values()) {
+            updateTotals(product);
+        }
+    }
+
+    public synchronized double getTotalInventoryValue() {
+        return totalValueCents / 100.0;
+    }
+
+    // Values the inventory as it stood at a past time: each product's stock is
+    // rolled back over later transactions and priced with the version then in
+    // effect. Products removed since are not included. No valuation
+    // checkpoints are stored; the roll-back only reads transactions after
+    // the requested time, so a recent month-end costs little, while a
+    // distant one reads the archive. Prices and current levels are taken
+    // under the lock; the roll-back runs after it is released.
+    public double getInventoryValueAt(LocalDateTime time) {
+        Map<String, Double> prices = new HashMap<>();
+        Map<String, Integer> quantities = new HashMap<>();
+        long mark;
+        synchronized (this) {
+            for (Product product : products.values()) {
+                if (time.isBefore(product.getCreatedAt())) {
+                    continue;
+                }
+                prices.put(product.getProductId(), product.getVersionAt(time).getPrice());
+                quantities.put(product.getProductId(), product.getQuantity());
+            }
+            mark = transactionManager.getTransactionMark();
+        }
+
+        Map<String, Integer> changes = transactionManager.getNetQuantityChangesSince(time, mark);
+        double value = 0;
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            int stock = entry.getValue() - changes.getOrDefault(entry.getKey(), 0);
+            value += prices.get(entry.getKey()) * stock;
+        }
+        return value;
+    }
+
+    public synchronized int getTotalProductCount() {
         return products.size();
     }
 
-    public int getTotalStockCount() {
-        return products.values().stream()
-                .mapToInt(Product::getQuantity)
-                .sum();
+    public synchronized int getTotalStockCount() {
+        return totalStock;
+    }
+
+    public synchronized Map<String, Integer> getStockByLocation() {
+        return new TreeMap<>(locationTotals);
+    }
+
+    // Products stocked at the location, including those that have since run
+    // out there, whose stock at it is at or below the threshold. Every
+    // product is stocked at DEFAULT_LOCATION.
+    public List<Product> getLowStockProducts(String location, int threshold) {
+        List<Product> lowStock = new ArrayList<>();
+        String normalized = normalizeLocation(location);
+        if (normalized == null) {
+            return lowStock;
+        }
+
+        synchronized (this) {
+            TreeMap<Integer, Set<String>> levels = stockLevels.get(normalized);
+            if (levels == null) {
+                return lowStock;
+            }
+            for (Set<String> ids : levels.headMap(threshold, true).values()) {
+                for (String productId : ids) {
+                    lowStock.add(new Product(products.get(productId)));
+                }
+            }
+        }
+        return lowStock;
+    }
+
+    // A journal record or full catalog image, serialized while the lock was held
+    private static class PendingWrite {
+        private final boolean snapshot;
+        private final byte[] data;
+
+        PendingWrite(boolean snapshot, byte[] data) {
+            this.snapshot = snapshot;
+            this.data = data;
+        }
     }
 }
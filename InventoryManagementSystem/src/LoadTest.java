@@ -0,0 +1,201 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Headless load generator. Builds a synthetic catalog and replays a Zipfian mix
+// of sales, purchases, restocks and searches from several threads, then
+// reports throughput, latency percentiles and the size of the persisted files.
+//
+// Usage (run from an empty directory; the .dat files are written there):
+//   java LoadTest products=1000 ops=5000 threads=4 zipf=1.1 categories=20 \
+//        sale=70 purchase=10 restock=10 search=10
+public class LoadTest {
+    private enum Operation { SALE, PURCHASE, RESTOCK, SEARCH }
+
+    private static final String[] DATA_FILES = {
+            "inventory.dat", "inventory.journal", "transactions.dat",
+            "transactions_archive.dat", "activity_logs.dat"
+    };
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parseOptions(args);
+        int productCount = Integer.parseInt(options.getOrDefault("products", "1000"));
+        int opCount = Integer.parseInt(options.getOrDefault("ops", "5000"));
+        int threadCount = Integer.parseInt(options.getOrDefault("threads", "4"));
+        double zipf = Double.parseDouble(options.getOrDefault("zipf", "1.1"));
+        int categoryCount = Integer.parseInt(options.getOrDefault("categories", "20"));
+        int[] mix = {
+                Integer.parseInt(options.getOrDefault("sale", "70")),
+                Integer.parseInt(options.getOrDefault("purchase", "10")),
+                Integer.parseInt(options.getOrDefault("restock", "10")),
+                Integer.parseInt(options.getOrDefault("search", "10"))
+        };
+
+        for (String name : DATA_FILES) {
+            if (new File(name).exists()) {
+                System.err.println("Refusing to run: " + name + " already exists in " +
+                        new File(".").getAbsolutePath() + ". Run from an empty directory.");
+                return;
+            }
+        }
+
+        ActivityLogger activityLogger = new ActivityLogger();
+        TransactionManager transactionManager = new TransactionManager();
+        InventoryManager inventoryManager = new InventoryManager(activityLogger, transactionManager);
+
+        System.out.printf("Building catalog of %d products in %d categories...%n",
+                productCount, categoryCount);
+        ZipfSampler categorySampler = new ZipfSampler(categoryCount, zipf);
+        long buildStart = System.nanoTime();
+        List<Product> catalog = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            String category = "Category-" + categorySampler.next();
+            catalog.add(new Product(productId(i), "Product " + i,
+                    "Synthetic load-test product", 1 + (i % 100), 1_000_000, category));
+        }
+        inventoryManager.addProducts(catalog);
+        System.out.printf("Catalog built in %.1f ms%n", (System.nanoTime() - buildStart) / 1e6);
+
+        ZipfSampler productSampler = new ZipfSampler(productCount, zipf);
+        // Each worker records into its own arrays, merged after join, so
+        // timing never contends on a shared monitor
+        List<long[][]> threadLatencies = new ArrayList<>();
+        List<int[]> threadCounts = new ArrayList<>();
+
+        List<Thread> workers = new ArrayList<>();
+        int perThread = opCount / threadCount;
+        long runStart = System.nanoTime();
+        for (int t = 0; t < threadCount; t++) {
+            int ops = t == threadCount - 1 ? opCount - perThread * (threadCount - 1) : perThread;
+            long[][] latencies = new long[Operation.values().length][ops];
+            int[] counts = new int[Operation.values().length];
+            threadLatencies.add(latencies);
+            threadCounts.add(counts);
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < ops; i++) {
+                    Operation op = pick(mix);
+                    String productId = productId(productSampler.next() - 1);
+                    long start = System.nanoTime();
+                    switch (op) {
+                        case SALE -> inventoryManager.sellProduct(productId, 1);
+                        case PURCHASE -> inventoryManager.purchaseProduct(productId, 10, "LoadTest");
+                        case RESTOCK -> inventoryManager.restockProduct(productId, 5);
+                        case SEARCH -> inventoryManager.searchProducts("Category-" + categorySampler.next());
+                    }
+                    latencies[op.ordinal()][counts[op.ordinal()]++] = System.nanoTime() - start;
+                }
+            }, "load-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - runStart) / 1e9;
+
+        Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) {
+            int count = 0;
+            for (int[] counts : threadCounts) {
+                count += counts[op.ordinal()];
+            }
+            long[] merged = new long[count];
+            int offset = 0;
+            for (int t = 0; t < threadCount; t++) {
+                int recorded = threadCounts.get(t)[op.ordinal()];
+                System.arraycopy(threadLatencies.get(t)[op.ordinal()], 0, merged, offset, recorded);
+                offset += recorded;
+            }
+            latencies.put(op, merged);
+        }
+
+        System.out.println("\n========================================");
+        System.out.println("           LOAD TEST RESULTS");
+        System.out.println("========================================");
+        System.out.printf("Operations: %d on %d threads in %.2f s (%.1f ops/s)%n",
+                opCount, threadCount, seconds, opCount / seconds);
+        System.out.printf("%-10s %-8s %-12s %-12s %-12s%n", "Op", "Count", "p50 (ms)", "p99 (ms)", "p999 (ms)");
+        System.out.println("----------------------------------------");
+        for (Operation op : Operation.values()) {
+            long[] sorted = latencies.get(op);
+            int count = sorted.length;
+            if (count == 0) {
+                continue;
+            }
+            Arrays.sort(sorted);
+            System.out.printf("%-10s %-8d %-12.3f %-12.3f %-12.3f%n", op, count,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999));
+        }
+        System.out.println("----------------------------------------");
+        for (String name : DATA_FILES) {
+            File file = new File(name);
+            if (file.exists()) {
+                System.out.printf("%-26s %,d bytes%n", name, file.length());
+            }
+        }
+        System.out.println("========================================");
+    }
+
+    private static Operation pick(int[] mix) {
+        int total = 0;
+        for (int weight : mix) {
+            total += weight;
+        }
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < mix.length; i++) {
+            roll -= mix[i];
+            if (roll < 0) {
+                return Operation.values()[i];
+            }
+        }
+        return Operation.SALE;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static String productId(int index) {
+        return "LT" + index;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq).toLowerCase(), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    // Samples ranks 1..n with probability proportional to 1 / rank^exponent
+    private static class ZipfSampler {
+        private final double[] cumulative;
+
+        private ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        private int next() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            int index = Arrays.binarySearch(cumulative, u);
+            return (index >= 0 ? index : -index - 1) + 1;
+        }
+    }
+}
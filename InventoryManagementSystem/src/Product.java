@@ -1,9 +1,18 @@
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class Product implements Serializable {
     private static final long serialVersionUID = 1L;
+    public static final String DEFAULT_LOCATION = "MAIN";
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private String productId;
     private String name;
@@ -13,6 +22,11 @@ public class Product implements Serializable {
     private String category;
     private LocalDateTime createdAt;
     private LocalDateTime lastModified;
+    // Append-only name/price/category history, ordered by validFrom
+    private List<ProductVersion> versions;
+    // Stock per location, summing to quantity; null while everything is at
+    // DEFAULT_LOCATION. A location that runs out stays listed at zero.
+    private Map<String, Integer> locationStock;
 
     public Product(String productId, String name, String description,
                    double price, int quantity, String category) {
@@ -23,7 +37,23 @@ public class Product implements Serializable {
         this.quantity = quantity;
         this.category = category;
         this.createdAt = LocalDateTime.now();
-        this.lastModified = LocalDateTime.now();
+        this.lastModified = createdAt;
+        this.versions = new ArrayList<>();
+        versions.add(new ProductVersion(name, price, category, createdAt));
+    }
+
+    // Point-in-time copy used for read-only snapshots of the inventory
+    public Product(Product other) {
+        this.productId = other.productId;
+        this.name = other.name;
+        this.description = other.description;
+        this.price = other.price;
+        this.quantity = other.quantity;
+        this.category = other.category;
+        this.createdAt = other.createdAt;
+        this.lastModified = other.lastModified;
+        this.versions = new ArrayList<>(other.getVersions());
+        this.locationStock = other.locationStock == null ? null : new HashMap<>(other.locationStock);
     }
 
     // Getters
@@ -36,7 +66,74 @@ public class Product implements Serializable {
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getLastModified() { return lastModified; }
 
-    // Setters
+    public List<ProductVersion> getVersions() {
+        ensureVersions();
+        return Collections.unmodifiableList(versions);
+    }
+
+    // Version in effect at the given time, or null if the product did not
+    // exist yet. Once compactVersions has dropped the versions in effect
+    // then, the oldest retained version stands in for them.
+    public ProductVersion getVersionAt(LocalDateTime time) {
+        ensureVersions();
+        if (time.isBefore(createdAt)) {
+            return null;
+        }
+        int low = 0;
+        int high = versions.size() - 1;
+        ProductVersion found = null;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            ProductVersion version = versions.get(mid);
+            if (version.getValidFrom().isAfter(time)) {
+                high = mid - 1;
+            } else {
+                found = version;
+                low = mid + 1;
+            }
+        }
+        return found == null ? versions.get(0) : found;
+    }
+
+    // Drops versions fully superseded before the cutoff; the version in
+    // effect at the cutoff is kept so as-of lookups after it stay exact.
+    public int compactVersions(LocalDateTime cutoff) {
+        ensureVersions();
+        int keepFrom = 0;
+        for (int i = 1; i < versions.size(); i++) {
+            if (versions.get(i).getValidFrom().isAfter(cutoff)) {
+                break;
+            }
+            keepFrom = i;
+        }
+        versions.subList(0, keepFrom).clear();
+        return keepFrom;
+    }
+
+    // Copies name, description, price and category from an edited copy,
+    // keeping this product's stock, locations and history. One version is
+    // recorded for the whole edit, and only if a versioned value changed.
+    // Returns whether anything changed.
+    public boolean updateDetails(Product edited) {
+        boolean versioned = !Objects.equals(name, edited.name) ||
+                Double.compare(price, edited.price) != 0 ||
+                !Objects.equals(category, edited.category);
+        if (!versioned && Objects.equals(description, edited.description)) {
+            return false;
+        }
+
+        this.name = edited.name;
+        this.description = edited.description;
+        this.price = edited.price;
+        this.category = edited.category;
+        updateModifiedTime();
+        if (versioned) {
+            recordVersion();
+        }
+        return true;
+    }
+
+    // Setters edit a copy; the inventory applies the edit with updateDetails
     public void setName(String name) {
         this.name = name;
         updateModifiedTime();
@@ -52,33 +149,104 @@ public class Product implements Serializable {
         updateModifiedTime();
     }
 
+    public Map<String, Integer> getLocationStock() {
+        if (locationStock == null) {
+            return Map.of(DEFAULT_LOCATION, quantity);
+        }
+        return Collections.unmodifiableMap(locationStock);
+    }
+
+    public int getLocationQuantity(String location) {
+        if (locationStock == null) {
+            return DEFAULT_LOCATION.equals(location) ? quantity : 0;
+        }
+        return locationStock.getOrDefault(location, 0);
+    }
+
+    // Quantity edits without a location apply to DEFAULT_LOCATION
     public void setQuantity(int quantity) {
+        changeLocationStock(DEFAULT_LOCATION, quantity - this.quantity);
         this.quantity = quantity;
         updateModifiedTime();
     }
 
+    public void setLocationQuantity(String location, int quantity) {
+        int delta = quantity - getLocationQuantity(location);
+        changeLocationStock(location, delta);
+        this.quantity += delta;
+        updateModifiedTime();
+    }
+
     public void setCategory(String category) {
         this.category = category;
         updateModifiedTime();
     }
 
     public void addQuantity(int amount) {
+        addQuantity(DEFAULT_LOCATION, amount);
+    }
+
+    public void reduceQuantity(int amount) {
+        reduceQuantity(DEFAULT_LOCATION, amount);
+    }
+
+    public void addQuantity(String location, int amount) {
+        changeLocationStock(location, amount);
         this.quantity += amount;
         updateModifiedTime();
     }
 
-    public void reduceQuantity(int amount) {
+    public void reduceQuantity(String location, int amount) {
+        changeLocationStock(location, -amount);
         this.quantity -= amount;
         updateModifiedTime();
     }
 
+    public void transferQuantity(String fromLocation, String toLocation, int amount) {
+        ensureLocationStock();
+        changeLocationStock(fromLocation, -amount);
+        changeLocationStock(toLocation, amount);
+        updateModifiedTime();
+    }
+
+    // Callers adjust quantity by the same amount, except for transfers, which
+    // move stock between locations and leave the total unchanged
+    private void changeLocationStock(String location, int amount) {
+        if (locationStock == null && DEFAULT_LOCATION.equals(location)) {
+            return;
+        }
+        ensureLocationStock();
+
+        locationStock.merge(location, amount, Integer::sum);
+    }
+
+    private void ensureLocationStock() {
+        if (locationStock == null) {
+            locationStock = new HashMap<>();
+            locationStock.put(DEFAULT_LOCATION, quantity);
+        }
+    }
+
     private void updateModifiedTime() {
         this.lastModified = LocalDateTime.now();
     }
 
+    private void recordVersion() {
+        ensureVersions();
+        versions.add(new ProductVersion(name, price, category, lastModified));
+    }
+
+    // Products saved before versioning existed start with a single version
+    // holding their current values
+    private void ensureVersions() {
+        if (versions == null) {
+            versions = new ArrayList<>();
+            versions.add(new ProductVersion(name, price, category, createdAt));
+        }
+    }
+
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         return String.format(
                 "Product ID: %s\n" +
                         "Name: %s\n" +
@@ -89,7 +257,7 @@ public class Product implements Serializable {
                         "Created: %s\n" +
                         "Last Modified: %s",
                 productId, name, description, price, quantity, category,
-                createdAt.format(formatter), lastModified.format(formatter)
+                createdAt.format(FORMATTER), lastModified.format(FORMATTER)
         );
     }
 }
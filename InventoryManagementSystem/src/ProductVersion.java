@@ -0,0 +1,33 @@
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+public class ProductVersion implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String name;
+    private final double price;
+    private final String category;
+    private final LocalDateTime validFrom;
+
+    public ProductVersion(String name, double price, String category, LocalDateTime validFrom) {
+        this.name = name;
+        this.price = price;
+        this.category = category;
+        this.validFrom = validFrom;
+    }
+
+    // Getters
+    public String getName() { return name; }
+    public double getPrice() { return price; }
+    public String getCategory() { return category; }
+    public LocalDateTime getValidFrom() { return validFrom; }
+
+    @Override
+    public String toString() {
+        return String.format("From %s | Name: %s | Price: $%.2f | Category: %s",
+                validFrom.format(FORMATTER), name, price, category);
+    }
+}
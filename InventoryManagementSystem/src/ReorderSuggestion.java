@@ -0,0 +1,33 @@
+public class ReorderSuggestion {
+    private final Product product;
+    private final double dailySalesRate;
+    private final int reorderPoint;
+    private final int suggestedQuantity;
+
+    public ReorderSuggestion(Product product, double dailySalesRate,
+                             int reorderPoint, int suggestedQuantity) {
+        this.product = product;
+        this.dailySalesRate = dailySalesRate;
+        this.reorderPoint = reorderPoint;
+        this.suggestedQuantity = suggestedQuantity;
+    }
+
+    // Getters
+    public Product getProduct() { return product; }
+    public double getDailySalesRate() { return dailySalesRate; }
+    public int getReorderPoint() { return reorderPoint; }
+    public int getSuggestedQuantity() { return suggestedQuantity; }
+
+    public double getDaysOfCover() {
+        return product.getQuantity() / dailySalesRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s - %s | Qty: %d | Sold/day: %.2f | Reorder at: %d | Days left: %.1f | Order: %d",
+                product.getProductId(), product.getName(), product.getQuantity(),
+                dailySalesRate, reorderPoint, getDaysOfCover(), suggestedQuantity
+        );
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Imports sale/restock/purchase events from a CSV feed ("TYPE,PRODUCT_ID,QUANTITY"
+// per line). Repeated events for the same product are grouped and applied in
+// batches, so each batch costs one save instead of one per event. Events keep
+// their own quantities so a sale that cannot be covered is rejected alone.
+public class StockEventImporter {
+    private final InventoryManager inventoryManager;
+    private final int batchSize;
+
+    private final Map<TransactionType, Map<String, List<Integer>>> pending;
+    private int pendingLines;
+    private int applied;
+    private int rejected;
+
+    public StockEventImporter(InventoryManager inventoryManager, int batchSize) {
+        this.inventoryManager = inventoryManager;
+        this.batchSize = batchSize;
+        this.pending = new EnumMap<>(TransactionType.class);
+    }
+
+    public int importFile(String path) {
+        applied = 0;
+        rejected = 0;
+        pending.clear();
+        pendingLines = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!accept(line)) {
+                    System.out.println("Skipping invalid line " + lineNumber + ": " + line);
+                    rejected++;
+                }
+                if (pendingLines >= batchSize) {
+                    flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading stock events: " + e.getMessage());
+        }
+        flush();
+        return applied;
+    }
+
+    public int getRejectedCount() {
+        return rejected;
+    }
+
+    private boolean accept(String line) {
+        String[] parts = line.split(",");
+        if (parts.length != 3) {
+            return false;
+        }
+
+        TransactionType type;
+        int quantity;
+        try {
+            type = TransactionType.valueOf(parts[0].trim().toUpperCase());
+            quantity = Integer.parseInt(parts[2].trim());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        if (type == TransactionType.ADJUSTMENT || type == TransactionType.TRANSFER ||
+                quantity <= 0) {
+            return false;
+        }
+
+        pending.computeIfAbsent(type, t -> new LinkedHashMap<>())
+                .computeIfAbsent(parts[1].trim(), id -> new ArrayList<>())
+                .add(quantity);
+        pendingLines++;
+        return true;
+    }
+
+    // Incoming stock is applied before sales so a batch never rejects a sale
+    // that a restock later in the same batch would have covered.
+    private void flush() {
+        for (TransactionType type : new TransactionType[] {
+                TransactionType.PURCHASE, TransactionType.RESTOCK, TransactionType.SALE}) {
+            Map<String, List<Integer>> events = pending.get(type);
+            if (events == null || events.isEmpty()) {
+                continue;
+            }
+
+            int count = 0;
+            for (List<Integer> quantities : events.values()) {
+                count += quantities.size();
+            }
+            int failed = inventoryManager.applyStockBatch(type, events);
+            applied += count - failed;
+            rejected += failed;
+        }
+        pending.clear();
+        pendingLines = 0;
+    }
+}
@@ -1,10 +1,11 @@
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.UUID;
 
 public class Transaction implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private String transactionId;
     private String productId;
@@ -14,10 +15,21 @@ public class Transaction implements Serializable {
     private double pricePerUnit;
     private double totalAmount;
     private LocalDateTime timestamp;
+    // Stock location; for transfers, the source. Null for the default location.
+    private String location;
+    private String destinationLocation;
+
+    public Transaction(String productId, String productName, TransactionType type,
+                       int quantity, double pricePerUnit,
+                       String location, String destinationLocation) {
+        this(productId, productName, type, quantity, pricePerUnit);
+        this.location = location;
+        this.destinationLocation = destinationLocation;
+    }
 
     public Transaction(String productId, String productName, TransactionType type,
                        int quantity, double pricePerUnit) {
-        this.transactionId = UUID.randomUUID().toString().substring(0, 8);
+        this.transactionId = IdGenerator.getDefault().nextIdString();
         this.productId = productId;
         this.productName = productName;
         this.type = type;
@@ -36,15 +48,33 @@ public class Transaction implements Serializable {
     public double getPricePerUnit() { return pricePerUnit; }
     public double getTotalAmount() { return totalAmount; }
     public LocalDateTime getTimestamp() { return timestamp; }
+    public String getLocation() { return location; }
+    public String getDestinationLocation() { return destinationLocation; }
+
+    // Signed effect of this transaction on the product's stock level
+    public int getQuantityDelta() {
+        return switch (type) {
+            case PURCHASE, RESTOCK -> quantity;
+            case SALE -> -quantity;
+            case ADJUSTMENT -> quantity;
+            case TRANSFER -> 0;
+        };
+    }
 
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return String.format(
+        String text = String.format(
                 "Transaction ID: %s | Type: %s | Product: %s (ID: %s) | " +
                         "Quantity: %d | Price/Unit: $%.2f | Total: $%.2f | Time: %s",
                 transactionId, type.getDisplayName(), productName, productId,
-                quantity, pricePerUnit, totalAmount, timestamp.format(formatter)
+                quantity, pricePerUnit, totalAmount, timestamp.format(FORMATTER)
         );
+        if (destinationLocation != null) {
+            return text + " | From: " + location + " To: " + destinationLocation;
+        }
+        if (location != null) {
+            return text + " | Location: " + location;
+        }
+        return text;
     }
 }
@@ -1,71 +1,489 @@
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class TransactionManager {
     private List<Transaction> transactions;
+    // Units sold per day per product, kept in step with recordTransaction
+    private TreeMap<LocalDate, Map<String, Integer>> dailyUnitsSold;
+    // Live transactions of each product, in time order
+    private Map<String, List<Transaction>> transactionsByProduct;
+    // Totals of archived transactions, read from the archive header on load
+    private double archivedRevenue;
+    private double archivedPurchases;
+    private LocalDateTime archivedThrough;
+    // Daily units sold by archived sales still inside the rollup retention,
+    // kept in the archive header so a load need not read the archive itself
+    private TreeMap<LocalDate, Map<String, Integer>> archivedUnitsSold;
+    // Transactions appended since load. The live list only loses its oldest
+    // entries to the archive, so the newest live transaction is always number
+    // appendedCount. archiveVersion changes whenever the archive is rewritten.
+    private long appendedCount;
+    private long archiveVersion;
+    // Writes are ordered by saveLock, which is never taken while holding this
+    // manager's own lock; changes already on disk are not written again.
+    private final Object saveLock;
+    private long changeCount;
+    private long savedChangeCount;
     private static final String TRANSACTION_FILE = "transactions.dat";
+    private static final String ARCHIVE_FILE = "transactions_archive.dat";
+    private static final int ROLLUP_RETENTION_DAYS = 400;
 
     public TransactionManager() {
         this.transactions = new ArrayList<>();
+        this.dailyUnitsSold = new TreeMap<>();
+        this.transactionsByProduct = new HashMap<>();
+        this.saveLock = new Object();
+        loadArchiveSummary();
         loadFromFile();
     }
 
     public void recordTransaction(Transaction transaction) {
-        transactions.add(transaction);
+        appendTransaction(transaction);
+        saveToFile();
+    }
+
+    public void recordTransactions(List<Transaction> batch) {
+        appendTransactions(batch);
         saveToFile();
     }
 
-    public List<Transaction> getAllTransactions() {
+    // Adds to memory only; the caller saves once it has released its own locks
+    public synchronized void appendTransaction(Transaction transaction) {
+        transactions.add(transaction);
+        addToIndexes(transaction);
+        appendedCount++;
+        changeCount++;
+    }
+
+    public synchronized void appendTransactions(List<Transaction> batch) {
+        for (Transaction transaction : batch) {
+            transactions.add(transaction);
+            addToIndexes(transaction);
+        }
+        appendedCount += batch.size();
+        changeCount++;
+    }
+
+    public synchronized List<Transaction> getAllTransactions() {
         return new ArrayList<>(transactions);
     }
 
-    public List<Transaction> getTransactionsByProduct(String productId) {
-        return transactions.stream()
-                .filter(t -> t.getProductId().equals(productId))
-                .collect(Collectors.toList());
+    public synchronized List<Transaction> getTransactionsByProduct(String productId) {
+        return new ArrayList<>(transactionsByProduct.getOrDefault(productId, List.of()));
+    }
+
+    // One page of a product's transactions within [start, end], oldest first
+    public synchronized List<Transaction> getTransactionsByProduct(String productId, LocalDateTime start,
+                                                                   LocalDateTime end, int offset, int limit) {
+        List<Transaction> page = new ArrayList<>();
+        if (offset < 0 || limit < 0) {
+            System.out.println("Invalid page! Offset and limit must not be negative.");
+            return page;
+        }
+
+        List<Transaction> history = transactionsByProduct.getOrDefault(productId, List.of());
+        int first = firstIndexAtOrAfter(history, start);
+        if (offset >= history.size() - first) {
+            return page;
+        }
+        for (int i = first + offset; i < history.size() && page.size() < limit; i++) {
+            Transaction t = history.get(i);
+            if (t.getTimestamp().isAfter(end)) {
+                break;
+            }
+            page.add(t);
+        }
+        return page;
+    }
+
+    public synchronized int getTransactionCount(String productId) {
+        return transactionsByProduct.getOrDefault(productId, List.of()).size();
+    }
+
+    private int firstIndexAtOrAfter(List<Transaction> history, LocalDateTime time) {
+        int low = 0;
+        int high = history.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (history.get(mid).getTimestamp().isBefore(time)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
-    public List<Transaction> getTransactionsByType(TransactionType type) {
+    public synchronized List<Transaction> getTransactionsByType(TransactionType type) {
         return transactions.stream()
                 .filter(t -> t.getType() == type)
                 .collect(Collectors.toList());
     }
 
-    public List<Transaction> getTransactionsByDateRange(LocalDateTime start, LocalDateTime end) {
-        return transactions.stream()
+    public synchronized List<Transaction> getTransactionsByDateRange(LocalDateTime start, LocalDateTime end) {
+        return historyFrom(start).stream()
                 .filter(t -> !t.getTimestamp().isBefore(start) &&
                         !t.getTimestamp().isAfter(end))
                 .collect(Collectors.toList());
     }
 
-    public double getTotalRevenue() {
-        return transactions.stream()
+    // Marks the current end of the history; a roll-back given this mark
+    // ignores transactions appended after it, so callers can pair it with a
+    // stock snapshot taken at the same moment
+    public synchronized long getTransactionMark() {
+        return appendedCount;
+    }
+
+    public Map<String, Integer> getNetQuantityChangesSince(LocalDateTime since) {
+        return netQuantityChangesSince(null, since, getTransactionMark());
+    }
+
+    public Map<String, Integer> getNetQuantityChangesSince(LocalDateTime since, long mark) {
+        return netQuantityChangesSince(null, since, mark);
+    }
+
+    public int getNetQuantityChangeSince(String productId, LocalDateTime since) {
+        return getNetQuantityChangeSince(productId, since, getTransactionMark());
+    }
+
+    public int getNetQuantityChangeSince(String productId, LocalDateTime since, long mark) {
+        return netQuantityChangesSince(productId, since, mark).getOrDefault(productId, 0);
+    }
+
+    // Net quantity change per product (or for one product) from transactions
+    // after `since` and up to `mark`. The live part is summed under the lock;
+    // the archive, when needed, is read outside it so appends are not held
+    // up. If the archive changes meanwhile, the whole sum is redone.
+    private Map<String, Integer> netQuantityChangesSince(String productId, LocalDateTime since,
+                                                         long mark) {
+        while (true) {
+            Map<String, Integer> changes = new HashMap<>();
+            boolean needArchive;
+            long version;
+            synchronized (this) {
+                int newer = (int) Math.min(transactions.size(), Math.max(0, appendedCount - mark));
+                if (productId == null) {
+                    // Transactions are appended in time order, so walk back only as far as needed
+                    for (int i = transactions.size() - newer - 1; i >= 0; i--) {
+                        Transaction t = transactions.get(i);
+                        if (!t.getTimestamp().isAfter(since)) {
+                            break;
+                        }
+                        changes.merge(t.getProductId(), t.getQuantityDelta(), Integer::sum);
+                    }
+                } else {
+                    // Only the product's own transactions after the cutoff are read
+                    int productNewer = 0;
+                    for (int i = transactions.size() - newer; i < transactions.size(); i++) {
+                        if (transactions.get(i).getProductId().equals(productId)) {
+                            productNewer++;
+                        }
+                    }
+                    List<Transaction> productHistory = transactionsByProduct.getOrDefault(productId, List.of());
+                    for (int i = firstIndexAtOrAfter(productHistory, since);
+                         i < productHistory.size() - productNewer; i++) {
+                        Transaction t = productHistory.get(i);
+                        if (t.getTimestamp().isAfter(since)) {
+                            changes.merge(productId, t.getQuantityDelta(), Integer::sum);
+                        }
+                    }
+                }
+                needArchive = new File(ARCHIVE_FILE).exists() &&
+                        (transactions.isEmpty() || since.isBefore(transactions.get(0).getTimestamp()));
+                version = archiveVersion;
+            }
+
+            if (!needArchive) {
+                return changes;
+            }
+            List<Transaction> archive = loadArchive();
+            if (archive == null) {
+                return changes;
+            }
+            synchronized (this) {
+                if (version != archiveVersion) {
+                    continue;
+                }
+            }
+
+            for (int i = archive.size() - 1; i >= 0; i--) {
+                Transaction t = archive.get(i);
+                if (!t.getTimestamp().isAfter(since)) {
+                    break;
+                }
+                if (productId == null || t.getProductId().equals(productId)) {
+                    changes.merge(t.getProductId(), t.getQuantityDelta(), Integer::sum);
+                }
+            }
+            return changes;
+        }
+    }
+
+    public synchronized int getUnitsSold(String productId, LocalDate from, LocalDate to) {
+        int total = 0;
+        for (Map<String, Integer> day : dailyUnitsSold.subMap(from, true, to, true).values()) {
+            total += day.getOrDefault(productId, 0);
+        }
+        return total;
+    }
+
+    public synchronized Map<LocalDate, Integer> getDailyUnitsSold(String productId, LocalDate from, LocalDate to) {
+        Map<LocalDate, Integer> series = new TreeMap<>();
+        for (Map.Entry<LocalDate, Map<String, Integer>> day :
+                dailyUnitsSold.subMap(from, true, to, true).entrySet()) {
+            series.put(day.getKey(), day.getValue().getOrDefault(productId, 0));
+        }
+        return series;
+    }
+
+    public synchronized Map<String, Integer> getUnitsSoldLastDays(int days) {
+        LocalDate from = LocalDate.now().minusDays(days - 1L);
+        Map<String, Integer> totals = new HashMap<>();
+        for (Map<String, Integer> day : dailyUnitsSold.tailMap(from, true).values()) {
+            day.forEach((productId, units) -> totals.merge(productId, units, Integer::sum));
+        }
+        return totals;
+    }
+
+    private void addToRollup(Transaction transaction) {
+        if (transaction.getType() != TransactionType.SALE) {
+            return;
+        }
+
+        LocalDate day = transaction.getTimestamp().toLocalDate();
+        LocalDate cutoff = LocalDate.now().minusDays(ROLLUP_RETENTION_DAYS);
+        if (day.isBefore(cutoff)) {
+            return;
+        }
+
+        dailyUnitsSold.computeIfAbsent(day, d -> new HashMap<>())
+                .merge(transaction.getProductId(), transaction.getQuantity(), Integer::sum);
+        dailyUnitsSold.headMap(cutoff).clear();
+    }
+
+    private void addToIndexes(Transaction transaction) {
+        transactionsByProduct.computeIfAbsent(transaction.getProductId(), id -> new ArrayList<>())
+                .add(transaction);
+        addToRollup(transaction);
+    }
+
+    private void rebuildIndexes() {
+        dailyUnitsSold.clear();
+        transactionsByProduct.clear();
+        for (Transaction transaction : transactions) {
+            addToIndexes(transaction);
+        }
+    }
+
+    // The rollup outlives the live list, so archiving rebuilds only this index
+    private void rebuildProductIndex() {
+        transactionsByProduct.clear();
+        for (Transaction transaction : transactions) {
+            transactionsByProduct.computeIfAbsent(transaction.getProductId(), id -> new ArrayList<>())
+                    .add(transaction);
+        }
+    }
+
+    public synchronized double getTotalRevenue() {
+        return archivedRevenue + transactions.stream()
                 .filter(t -> t.getType() == TransactionType.SALE)
                 .mapToDouble(Transaction::getTotalAmount)
                 .sum();
     }
 
-    public double getTotalPurchases() {
-        return transactions.stream()
+    public synchronized double getTotalPurchases() {
+        return archivedPurchases + transactions.stream()
                 .filter(t -> t.getType() == TransactionType.PURCHASE)
                 .mapToDouble(Transaction::getTotalAmount)
                 .sum();
     }
 
-    public void saveToFile() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(TRANSACTION_FILE))) {
-            oos.writeObject(transactions);
+    // Moves transactions older than the cutoff out of the live list into the
+    // compressed archive file, which is only read by queries reaching back
+    // past the oldest live transaction. The archive is a single segment: a
+    // query starting even slightly before the live history reads all of it,
+    // where per-segment time ranges would let it skip older segments.
+    public int archiveTransactionsBefore(LocalDateTime cutoff) {
+        int count = moveToArchive(cutoff);
+        if (count > 0) {
+            saveToFile();
+        }
+        return count;
+    }
+
+    private synchronized int moveToArchive(LocalDateTime cutoff) {
+        int count = 0;
+        while (count < transactions.size() &&
+                transactions.get(count).getTimestamp().isBefore(cutoff)) {
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        List<Transaction> archive = loadArchive();
+        if (archive == null) {
+            return 0;
+        }
+        List<Transaction> moved = transactions.subList(0, count);
+        archive.addAll(moved);
+        if (!saveArchive(archive)) {
+            return 0;
+        }
+
+        moved.clear();
+        rebuildProductIndex();
+        archiveVersion++;
+        changeCount++;
+        return count;
+    }
+
+    // Archived transactions all predate the oldest live one, so the archive
+    // only needs reading when a query starts before that point.
+    private List<Transaction> historyFrom(LocalDateTime from) {
+        if (!new File(ARCHIVE_FILE).exists() ||
+                (!transactions.isEmpty() && !from.isBefore(transactions.get(0).getTimestamp()))) {
+            return transactions;
+        }
+
+        List<Transaction> history = loadArchive();
+        if (history == null) {
+            return transactions;
+        }
+        history.addAll(transactions);
+        return history;
+    }
+
+    // Written to a temporary file and moved into place, so a crash leaves
+    // either the old archive or the new one. The header records the newest
+    // archived timestamp, letting a load drop live transactions that were
+    // archived just before a crash but not yet removed from the live file.
+    private boolean saveArchive(List<Transaction> archive) {
+        double revenue = 0;
+        double purchases = 0;
+        LocalDateTime through = null;
+        TreeMap<LocalDate, Map<String, Integer>> unitsSold = new TreeMap<>();
+        LocalDate rollupCutoff = LocalDate.now().minusDays(ROLLUP_RETENTION_DAYS);
+        for (Transaction t : archive) {
+            if (t.getType() == TransactionType.SALE) {
+                revenue += t.getTotalAmount();
+                LocalDate day = t.getTimestamp().toLocalDate();
+                if (!day.isBefore(rollupCutoff)) {
+                    unitsSold.computeIfAbsent(day, d -> new HashMap<>())
+                            .merge(t.getProductId(), t.getQuantity(), Integer::sum);
+                }
+            } else if (t.getType() == TransactionType.PURCHASE) {
+                purchases += t.getTotalAmount();
+            }
+            if (through == null || t.getTimestamp().isAfter(through)) {
+                through = t.getTimestamp();
+            }
+        }
+
+        File temp = new File(ARCHIVE_FILE + ".tmp");
+        try {
+            try (ObjectOutputStream oos = new ObjectOutputStream(new GZIPOutputStream(
+                    new FileOutputStream(temp)))) {
+                oos.writeDouble(revenue);
+                oos.writeDouble(purchases);
+                oos.writeObject(through);
+                oos.writeObject(unitsSold);
+                oos.writeObject(archive);
+            }
+            Files.move(temp.toPath(), Paths.get(ARCHIVE_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
-            System.err.println("Error saving transactions: " + e.getMessage());
+            System.err.println("Error saving transaction archive: " + e.getMessage());
+            temp.delete();
+            return false;
         }
+
+        archivedRevenue = revenue;
+        archivedPurchases = purchases;
+        archivedThrough = through;
+        archivedUnitsSold = unitsSold;
+        return true;
     }
 
     @SuppressWarnings("unchecked")
-    public void loadFromFile() {
+    private List<Transaction> loadArchive() {
+        File file = new File(ARCHIVE_FILE);
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(
+                new FileInputStream(ARCHIVE_FILE)))) {
+            ois.readDouble();
+            ois.readDouble();
+            ois.readObject();
+            ois.readObject();
+            return (List<Transaction>) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error loading transaction archive: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Reads only the totals and rollup at the head of the archive, not its
+    // transactions
+    @SuppressWarnings("unchecked")
+    private void loadArchiveSummary() {
+        File file = new File(ARCHIVE_FILE);
+        if (!file.exists()) {
+            return;
+        }
+
+        try (ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(
+                new FileInputStream(ARCHIVE_FILE)))) {
+            archivedRevenue = ois.readDouble();
+            archivedPurchases = ois.readDouble();
+            archivedThrough = (LocalDateTime) ois.readObject();
+            archivedUnitsSold = (TreeMap<LocalDate, Map<String, Integer>>) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error loading transaction archive: " + e.getMessage());
+        }
+    }
+
+    // Serializes a copy taken under the lock, so appends continue while the
+    // file is being written
+    public void saveToFile() {
+        synchronized (saveLock) {
+            List<Transaction> copy;
+            long savingChangeCount;
+            synchronized (this) {
+                if (changeCount == savedChangeCount) {
+                    return;
+                }
+                copy = new ArrayList<>(transactions);
+                savingChangeCount = changeCount;
+            }
+
+            try (ObjectOutputStream oos = new ObjectOutputStream(
+                    new FileOutputStream(TRANSACTION_FILE))) {
+                oos.writeObject(copy);
+            } catch (IOException e) {
+                System.err.println("Error saving transactions: " + e.getMessage());
+                return;
+            }
+            savedChangeCount = savingChangeCount;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized void loadFromFile() {
         File file = new File(TRANSACTION_FILE);
         if (!file.exists()) {
             return;
@@ -78,9 +496,32 @@ public class TransactionManager {
             System.err.println("Error loading transactions: " + e.getMessage());
             transactions = new ArrayList<>();
         }
+
+        if (archivedThrough != null &&
+                transactions.removeIf(t -> !t.getTimestamp().isAfter(archivedThrough))) {
+            changeCount++;
+        }
+        appendedCount = transactions.size();
+        rebuildIndexes();
+        addArchiveToRollup();
+    }
+
+    // Sales archived within the rollup's retention still count towards it
+    private void addArchiveToRollup() {
+        if (archivedUnitsSold == null) {
+            return;
+        }
+
+        LocalDate cutoff = LocalDate.now().minusDays(ROLLUP_RETENTION_DAYS);
+        for (Map.Entry<LocalDate, Map<String, Integer>> day :
+                archivedUnitsSold.tailMap(cutoff, true).entrySet()) {
+            Map<String, Integer> units = dailyUnitsSold.computeIfAbsent(day.getKey(),
+                    d -> new HashMap<>());
+            day.getValue().forEach((productId, sold) -> units.merge(productId, sold, Integer::sum));
+        }
     }
 
-    public void displayAllTransactions() {
+    public synchronized void displayAllTransactions() {
         if (transactions.isEmpty()) {
             System.out.println("No transactions recorded.");
             return;
@@ -95,7 +536,7 @@ public class TransactionManager {
         System.out.println("========================================");
     }
 
-    public void displayRecentTransactions(int count) {
+    public synchronized void displayRecentTransactions(int count) {
         int size = transactions.size();
         int fromIndex = Math.max(0, size - count);
         List<Transaction> recentTransactions = new ArrayList<>(
@@ -2,7 +2,8 @@ public enum TransactionType {
     PURCHASE("Purchase"),
     SALE("Sale"),
     RESTOCK("Restock"),
-    ADJUSTMENT("Adjustment");
+    ADJUSTMENT("Adjustment"),
+    TRANSFER("Transfer");
 
     private final String displayName;
 